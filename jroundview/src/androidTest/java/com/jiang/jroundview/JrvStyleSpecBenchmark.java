@@ -0,0 +1,186 @@
+package com.jiang.jroundview;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link JrvStyleSpec} 解析与 {@link JrvDrawable#applySpec(JrvStyleSpec, float)} 的吞吐量基准, 每轮 10000 个样式。
+ * <p>
+ * 每项先预热 {@link #WARMUP_ROUNDS} 轮, 再测量 {@link #MEASURE_ROUNDS} 轮, 取每个样式耗时的中位数写入 logcat(tag JrvBenchmark);
+ * 断言只检查结果正确、缓存与重复应用比重新计算快, 以及宽松的耗时上限, 不同设备之间的绝对值以 logcat 为准。
+ * <pre>
+ * ./gradlew :jroundview:connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.jiang.jroundview.JrvStyleSpecBenchmark
+ * </pre>
+ */
+@RunWith(AndroidJUnit4.class)
+public class JrvStyleSpecBenchmark {
+
+    private static final String TAG = "JrvBenchmark";
+    private static final int COUNT = 10000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURE_ROUNDS = 10;
+    /**
+     * 解析缓存命中时循环使用的文本数, 小于解析缓存的容量
+     */
+    private static final int HOT_COUNT = 64;
+    private static final float DENSITY = 2f;
+    /**
+     * 宽松的上限, 只用于发现数量级的退化, 单位是ns
+     */
+    private static final long MAX_PARSE_NANOS = 50_000;
+    private static final long MAX_APPLY_NANOS = 200_000;
+
+    private static JrvStyleSpec[] sSpecs;
+    private static String[] sTexts;
+    private static byte[][] sBinaries;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        sSpecs = new JrvStyleSpec[COUNT];
+        sTexts = new String[COUNT];
+        sBinaries = new byte[COUNT][];
+        for (int i = 0; i < COUNT; i++) {
+            JrvStyleSpec.Builder builder = new JrvStyleSpec.Builder()
+                    .backgroundColor(0xFF000000 | (i * 7919))
+                    .border(1, 0xFFFFFFFF);
+            if (i % 3 == 0) {
+                builder.radii(i % 24, 4, i % 12, 0);
+            } else {
+                builder.radius(i % 24);
+            }
+            sSpecs[i] = builder.build();
+            sTexts[i] = sSpecs[i].encode();
+            sBinaries[i] = sSpecs[i].toBytes();
+        }
+    }
+
+    @Test
+    public void parseText() throws Exception {
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(sSpecs[i], JrvStyleSpec.parse(sTexts[i]));
+        }
+        long nanos = measure("parse", new Body() {
+            @Override
+            public void run() {
+                for (int i = 0; i < COUNT; i++) {
+                    JrvStyleSpec.parse(sTexts[i]);
+                }
+            }
+        });
+        assertTrue("parse " + nanos + "ns/op", nanos < MAX_PARSE_NANOS);
+    }
+
+    @Test
+    public void parseBinary() throws Exception {
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(sSpecs[i], JrvStyleSpec.fromBytes(sBinaries[i]));
+        }
+        long nanos = measure("fromBytes", new Body() {
+            @Override
+            public void run() throws Exception {
+                for (int i = 0; i < COUNT; i++) {
+                    JrvStyleSpec.fromBytes(sBinaries[i]);
+                }
+            }
+        });
+        assertTrue("fromBytes " + nanos + "ns/op", nanos < MAX_PARSE_NANOS);
+    }
+
+    @Test
+    public void valueOf_cacheHitIsFasterThanParse() throws Exception {
+        long parse = measure("parse(hot)", new Body() {
+            @Override
+            public void run() {
+                for (int i = 0; i < COUNT; i++) {
+                    JrvStyleSpec.parse(sTexts[i % HOT_COUNT]);
+                }
+            }
+        });
+        long hit = measure("valueOf(hit)", new Body() {
+            @Override
+            public void run() {
+                for (int i = 0; i < COUNT; i++) {
+                    JrvStyleSpec.valueOf(sTexts[i % HOT_COUNT]);
+                }
+            }
+        });
+        assertSame(JrvStyleSpec.valueOf(sTexts[0]), JrvStyleSpec.valueOf(sTexts[0]));
+        assertTrue("hit " + hit + "ns/op, parse " + parse + "ns/op", hit < parse);
+    }
+
+    @Test
+    public void applySpec() throws Exception {
+        final JrvStyleSpec[] interned = new JrvStyleSpec[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            interned[i] = sSpecs[i].intern();
+        }
+        final JrvDrawable[] drawables = new JrvDrawable[COUNT];
+        long create = measure("fromSpec", new Body() {
+            @Override
+            public void run() {
+                for (int i = 0; i < COUNT; i++) {
+                    drawables[i] = JrvDrawable.fromSpec(interned[i], DENSITY);
+                }
+            }
+        });
+        for (int i = 0; i < COUNT; i++) {
+            assertSame(interned[i], drawables[i].toSpec(DENSITY));
+        }
+        // 相同的样式与 density 直接返回
+        long reapply = measure("applySpec(same)", new Body() {
+            @Override
+            public void run() {
+                for (int i = 0; i < COUNT; i++) {
+                    drawables[i].applySpec(interned[i], DENSITY);
+                }
+            }
+        });
+        // 每次换成另一个样式, 重新设置颜色、描边与圆角
+        long change = measure("applySpec(change)", new Body() {
+            private int mOffset;
+
+            @Override
+            public void run() {
+                mOffset++;
+                for (int i = 0; i < COUNT; i++) {
+                    drawables[i].applySpec(interned[(i + mOffset) % COUNT], DENSITY);
+                }
+            }
+        });
+        assertTrue("fromSpec " + create + "ns/op", create < MAX_APPLY_NANOS);
+        assertTrue("applySpec(change) " + change + "ns/op", change < MAX_APPLY_NANOS);
+        assertTrue("applySpec(same) " + reapply + "ns/op, applySpec(change) " + change + "ns/op", reapply < change);
+    }
+
+    private interface Body {
+        void run() throws Exception;
+    }
+
+    /**
+     * @return 每个样式耗时的中位数, 单位是ns
+     */
+    private static long measure(String name, Body body) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            body.run();
+        }
+        long[] rounds = new long[MEASURE_ROUNDS];
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            body.run();
+            rounds[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(rounds);
+        long median = rounds[MEASURE_ROUNDS / 2] / COUNT;
+        Log.i(TAG, name + ": median " + median + "ns/op, min " + rounds[0] / COUNT + "ns/op over " + COUNT + " specs");
+        return median;
+    }
+}
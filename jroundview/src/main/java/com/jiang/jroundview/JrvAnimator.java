@@ -0,0 +1,215 @@
+package com.jiang.jroundview;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ArgbEvaluator;
+import android.animation.ObjectAnimator;
+import android.animation.PropertyValuesHolder;
+import android.animation.ValueAnimator;
+import android.view.View;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+import java.util.WeakHashMap;
+
+/**
+ * Jrv 控件的内置动画, 自动管理硬件层。
+ * <p>
+ * <ul>
+ * <li>透明度、缩放动画期间 View 的内容不变, 动画开始时提升为 {@link View#LAYER_TYPE_HARDWARE}, 结束或取消后恢复,
+ * 每帧只合成层而不重新绘制子 View。</li>
+ * <li>圆角、颜色、渐变动画每帧都会改变背景, 层每帧都会失效, 提升反而多一次离屏绘制, 所以不使用硬件层;
+ * 背景只重新录制自身的绘制指令, 子 View 的绘制指令不受影响。</li>
+ * <li>同一个 View 同时运行多个动画时按引用计数管理, 最后一个动画结束时才恢复;
+ * App 自己设置了层的 View 不会被修改。</li>
+ * <li>提升次数与当前的层数量见 {@link JrvProfiler#getLayerPromotionCount()}。</li>
+ * </ul>
+ * 返回的动画需要调用方 start, 只能在主线程使用。
+ */
+public final class JrvAnimator {
+
+    /**
+     * 正在被动画提升为硬件层的 View
+     */
+    private static final WeakHashMap<View, int[]> sLayerRefs = new WeakHashMap<>();
+
+    private JrvAnimator() {
+    }
+
+    /**
+     * 圆角动画
+     *
+     * @param radii 单位是px
+     */
+    @NonNull
+    public static ValueAnimator ofRadius(@NonNull View view, float... radii) {
+        final JrvDrawable drawable = requireJrvBackground(view);
+        ValueAnimator animator = ValueAnimator.ofFloat(radii);
+        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                drawable.setRadius((float) animation.getAnimatedValue());
+            }
+        });
+        return animator;
+    }
+
+    /**
+     * 纯色背景的颜色动画, 每帧直接设置填充色, 开始与结束时各更新一次背景颜色与过度绘制检查
+     */
+    @NonNull
+    public static ValueAnimator ofBackgroundColor(@NonNull View view, @ColorInt int... colors) {
+        final JrvDrawable drawable = requireJrvBackground(view);
+        ValueAnimator animator = ValueAnimator.ofInt(colors);
+        animator.setEvaluator(new ArgbEvaluator());
+        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                drawable.setAnimatedFillColor((int) animation.getAnimatedValue());
+            }
+        });
+        animator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationStart(Animator animation) {
+                drawable.startFillAnimation();
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                drawable.endFillAnimation();
+            }
+        });
+        return animator;
+    }
+
+    /**
+     * 渐变色动画, 逐个颜色插值, 每帧复用同一个颜色数组
+     *
+     * @param from 起始渐变色, 长度与 to 相同
+     */
+    @NonNull
+    public static ValueAnimator ofGradient(@NonNull View view, @NonNull final int[] from, @NonNull final int[] to) {
+        if (from.length != to.length || from.length < 2) {
+            throw new IllegalArgumentException("from and to must have the same length of at least 2");
+        }
+        final JrvDrawable drawable = requireJrvBackground(view);
+        final ArgbEvaluator evaluator = new ArgbEvaluator();
+        final int[] colors = new int[from.length];
+        ValueAnimator animator = ValueAnimator.ofFloat(0, 1);
+        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                float fraction = animation.getAnimatedFraction();
+                for (int i = 0; i < colors.length; i++) {
+                    colors[i] = (int) evaluator.evaluate(fraction, from[i], to[i]);
+                }
+                drawable.setGradient(colors);
+            }
+        });
+        return animator;
+    }
+
+    /**
+     * 透明度动画, View 内容有重叠时动画期间使用硬件层
+     */
+    @NonNull
+    public static ObjectAnimator ofAlpha(@NonNull View view, float... values) {
+        ObjectAnimator animator = ObjectAnimator.ofFloat(view, View.ALPHA, values);
+        // 没有重叠时透明度直接作用于每个绘制指令, 不需要层
+        animator.addListener(new LayerListener(view, view.hasOverlappingRendering()));
+        return animator;
+    }
+
+    /**
+     * 以中心缩放的动画, 动画期间使用硬件层
+     */
+    @NonNull
+    public static ObjectAnimator ofScale(@NonNull View view, float... values) {
+        ObjectAnimator animator = ObjectAnimator.ofPropertyValuesHolder(view,
+                PropertyValuesHolder.ofFloat(View.SCALE_X, values),
+                PropertyValuesHolder.ofFloat(View.SCALE_Y, values));
+        animator.addListener(new LayerListener(view, true));
+        return animator;
+    }
+
+    private static JrvDrawable requireJrvBackground(View view) {
+        JrvDrawable background = JrvHelper.getJrvBackground(view);
+        if (background == null) {
+            throw new IllegalArgumentException("background of " + view + " is not a Jrv background");
+        }
+        return background;
+    }
+
+    /**
+     * 提升为硬件层, 与 {@link #demote(View)} 成对调用
+     */
+    static void promote(@NonNull View view) {
+        int[] refs = sLayerRefs.get(view);
+        if (refs != null) {
+            refs[0]++;
+            return;
+        }
+        if (view.getLayerType() != View.LAYER_TYPE_NONE) {
+            // App 自己设置的层, 不修改
+            return;
+        }
+        sLayerRefs.put(view, new int[]{1});
+        view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        JrvProfiler.onLayerPromoted();
+    }
+
+    static void demote(@NonNull View view) {
+        int[] refs = sLayerRefs.get(view);
+        if (refs == null || --refs[0] > 0) {
+            return;
+        }
+        sLayerRefs.remove(view);
+        view.setLayerType(View.LAYER_TYPE_NONE, null);
+        JrvProfiler.onLayerDemoted();
+    }
+
+    /**
+     * 动画开始时提升, 结束(取消也会回调结束)时恢复, 同一个动画重复 start 也只计一次;
+     * 动画期间父 View 不会重绘, 同时停止背景的合批, 见 {@link JrvBackgroundBatch}
+     */
+    private static final class LayerListener extends AnimatorListenerAdapter {
+        private final View mView;
+        private final boolean mUseLayer;
+        private boolean mStarted;
+        private JrvDrawable mSuppressed;
+
+        LayerListener(View view, boolean useLayer) {
+            mView = view;
+            mUseLayer = useLayer;
+        }
+
+        @Override
+        public void onAnimationStart(Animator animation) {
+            if (!mStarted) {
+                mStarted = true;
+                mSuppressed = JrvHelper.getJrvBackground(mView);
+                if (mSuppressed != null) {
+                    mSuppressed.setBatchSuppressed(true);
+                }
+                if (mUseLayer) {
+                    promote(mView);
+                }
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (mStarted) {
+                mStarted = false;
+                if (mSuppressed != null) {
+                    mSuppressed.setBatchSuppressed(false);
+                    mSuppressed = null;
+                }
+                if (mUseLayer) {
+                    demote(mView);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.jiang.jroundview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+
+import java.util.Arrays;
+
+/**
+ * Jrv 布局中子 View 背景的合批绘制, 由布局在 dispatchDraw 中先于子 View 调用。
+ * <p>
+ * <ul>
+ * <li>只合批简单且静止的背景: 纯色填充或描边、无状态、无图层、四个圆角相同, 子 View 可见、没有变换、透明度、
+ * 硬件层与 elevation, 完全在父 View 的 padding 以内且不与其他子 View 重叠。</li>
+ * <li>合批的背景按填充色排序后连续绘制, 再按描边颜色与宽度排序绘制描边, 相同颜色之间不切换画笔状态;
+ * 子 View 自己的背景不再绘制。</li>
+ * <li>合批的背景样式变化时同时刷新父 View, 不满足条件后在下一次绘制时恢复由子 View 自己绘制。</li>
+ * <li>子 View 之间是否重叠在每次布局后的第一次绘制时计算一次, 子 View 被移除或刷新(Android 8.0 以上)前不再重新计算。</li>
+ * <li>合批的子 View 被属性动画平移、缩放、旋转或改变透明度时(Android 8.0 以上), 立即恢复由其自己绘制并刷新父 View。</li>
+ * </ul>
+ * 实例保存在父 View 的 tag 中, Jrv 布局通过静态方法调用; Android 8.0 以下父 View 只在自身需要重绘时才重新判断,
+ * 子 View 使用 App 自己的属性动画移动或改变透明度时请关闭合批, {@link JrvAnimator} 的动画期间会自动停止对应 View 的合批。
+ */
+class JrvBackgroundBatch {
+
+    private final ViewGroup mParent;
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mRect = new RectF();
+    private final float[] mRadii = new float[8];
+    /**
+     * 本次合批的子 View 与背景, 绘制完成后清空引用
+     */
+    private View[] mViews = new View[16];
+    private JrvDrawable[] mDrawables = new JrvDrawable[16];
+    private int mCount;
+    /**
+     * 按子 View 的下标保存是否与其他子 View 重叠, 布局或子 View 变化后失效
+     */
+    private boolean[] mOverlaps = new boolean[16];
+    private int mOverlapsCount = -1;
+
+    private JrvBackgroundBatch(ViewGroup parent) {
+        mParent = parent;
+    }
+
+    /**
+     * 开启或关闭 parent 的子 View 背景合批
+     */
+    static void setEnabled(@NonNull ViewGroup parent, boolean enabled) {
+        JrvBackgroundBatch batch = of(parent);
+        if (enabled && batch == null) {
+            parent.setTag(R.id.jrv_background_batch, new JrvBackgroundBatch(parent));
+            parent.invalidate();
+        } else if (!enabled && batch != null) {
+            batch.releaseAll();
+            parent.setTag(R.id.jrv_background_batch, null);
+        }
+    }
+
+    /**
+     * 在 dispatchDraw 中先于子 View 调用, 没有开启时直接返回
+     */
+    static void draw(@NonNull ViewGroup parent, @NonNull Canvas canvas) {
+        JrvBackgroundBatch batch = of(parent);
+        if (batch != null) {
+            batch.drawBackgrounds(canvas);
+        }
+    }
+
+    /**
+     * 在 onLayout 中调用, 子 View 的位置可能变化, 下一次绘制时重新计算重叠
+     */
+    static void onLayout(@NonNull ViewGroup parent) {
+        JrvBackgroundBatch batch = of(parent);
+        if (batch != null) {
+            batch.mOverlapsCount = -1;
+        }
+    }
+
+    /**
+     * 子 View 被移除时恢复由其自己绘制
+     */
+    static void onViewRemoved(@NonNull ViewGroup parent, @NonNull View child) {
+        JrvBackgroundBatch batch = of(parent);
+        if (batch != null) {
+            batch.release(child);
+            batch.mOverlapsCount = -1;
+        }
+    }
+
+    /**
+     * 子 View 的属性变化时父 View 不会重绘, 合批的子 View 有了变换或透明度后立即恢复由其自己绘制
+     */
+    static void onDescendantInvalidated(@NonNull ViewGroup parent, @NonNull View child) {
+        JrvBackgroundBatch batch = of(parent);
+        if (batch == null || child.getParent() != parent) {
+            return;
+        }
+        // 可见性变化不一定重新布局
+        batch.mOverlapsCount = -1;
+        JrvDrawable background = JrvHelper.getJrvBackground(child);
+        if (background != null && background.getBatchedBy() == parent && !isStatic(child)) {
+            background.setBatchedBy(null);
+            parent.invalidate();
+        }
+    }
+
+    @Nullable
+    private static JrvBackgroundBatch of(ViewGroup parent) {
+        Object tag = parent.getTag(R.id.jrv_background_batch);
+        return tag instanceof JrvBackgroundBatch ? (JrvBackgroundBatch) tag : null;
+    }
+
+    private void drawBackgrounds(Canvas canvas) {
+        collect();
+        if (mCount == 0) {
+            return;
+        }
+        sortByFill();
+        mPaint.setStyle(Paint.Style.FILL);
+        int paintColor = Color.TRANSPARENT;
+        for (int i = 0; i < mCount; i++) {
+            int color = mDrawables[i].getBatchFillColor();
+            if (Color.alpha(color) == 0) {
+                continue;
+            }
+            if (color != paintColor) {
+                mPaint.setColor(color);
+                paintColor = color;
+            }
+            drawShape(canvas, mViews[i], mDrawables[i]);
+        }
+        sortByStroke();
+        mPaint.setStyle(Paint.Style.STROKE);
+        paintColor = Color.TRANSPARENT;
+        int paintWidth = -1;
+        for (int i = 0; i < mCount; i++) {
+            int color = mDrawables[i].getBatchStrokeColor();
+            if (Color.alpha(color) == 0) {
+                continue;
+            }
+            int width = mDrawables[i].getStrokeWidth();
+            if (color != paintColor) {
+                mPaint.setColor(color);
+                paintColor = color;
+            }
+            if (width != paintWidth) {
+                mPaint.setStrokeWidth(width);
+                paintWidth = width;
+            }
+            drawShape(canvas, mViews[i], mDrawables[i]);
+        }
+        Arrays.fill(mViews, 0, mCount, null);
+        Arrays.fill(mDrawables, 0, mCount, null);
+        mCount = 0;
+    }
+
+    private void release(View child) {
+        JrvDrawable background = JrvHelper.getJrvBackground(child);
+        if (background != null && background.getBatchedBy() == mParent) {
+            background.setBatchedBy(null);
+        }
+    }
+
+    private void releaseAll() {
+        for (int i = 0; i < mParent.getChildCount(); i++) {
+            release(mParent.getChildAt(i));
+        }
+    }
+
+    private void collect() {
+        mCount = 0;
+        int childCount = mParent.getChildCount();
+        if (mOverlapsCount != childCount) {
+            computeOverlaps(childCount);
+        }
+        for (int i = 0; i < childCount; i++) {
+            View child = mParent.getChildAt(i);
+            JrvDrawable background = JrvHelper.getJrvBackground(child);
+            if (background == null) {
+                continue;
+            }
+            if (mOverlaps[i] || !isBatchable(child, background)) {
+                if (background.getBatchedBy() == mParent) {
+                    background.setBatchedBy(null);
+                }
+                continue;
+            }
+            background.setBatchedBy(mParent);
+            if (mCount == mViews.length) {
+                mViews = Arrays.copyOf(mViews, mCount * 2);
+                mDrawables = Arrays.copyOf(mDrawables, mCount * 2);
+            }
+            mViews[mCount] = child;
+            mDrawables[mCount] = background;
+            mCount++;
+        }
+    }
+
+    private boolean isBatchable(View child, JrvDrawable background) {
+        int width = child.getWidth();
+        int height = child.getHeight();
+        if (child.getBackground() != background || width <= 0 || height <= 0 || !isStatic(child)
+                || !background.isBatchable()) {
+            return false;
+        }
+        background.computeRadii(width, height, mRadii);
+        if (!JrvDrawable.isUniform(mRadii)) {
+            return false;
+        }
+        int left = mParent.getScrollX() + mParent.getPaddingLeft();
+        int top = mParent.getScrollY() + mParent.getPaddingTop();
+        int right = mParent.getScrollX() + mParent.getWidth() - mParent.getPaddingRight();
+        int bottom = mParent.getScrollY() + mParent.getHeight() - mParent.getPaddingBottom();
+        return child.getLeft() >= left && child.getTop() >= top && child.getRight() <= right && child.getBottom() <= bottom;
+    }
+
+    /**
+     * 可见、没有变换、透明度、硬件层与 elevation
+     */
+    private static boolean isStatic(View child) {
+        return child.getVisibility() == View.VISIBLE && child.getAnimation() == null && child.getMatrix().isIdentity()
+                && child.getAlpha() >= 1 && child.getLayerType() == View.LAYER_TYPE_NONE && ViewCompat.getZ(child) == 0;
+    }
+
+    /**
+     * 每对可见的子 View 只比较一次, 结果保存到下一次布局或子 View 变化
+     */
+    private void computeOverlaps(int childCount) {
+        if (mOverlaps.length < childCount) {
+            mOverlaps = new boolean[Math.max(childCount, mOverlaps.length * 2)];
+        }
+        Arrays.fill(mOverlaps, 0, childCount, false);
+        for (int i = 0; i < childCount; i++) {
+            View child = mParent.getChildAt(i);
+            if (child.getVisibility() != View.VISIBLE) {
+                continue;
+            }
+            for (int j = i + 1; j < childCount; j++) {
+                View sibling = mParent.getChildAt(j);
+                if (sibling.getVisibility() == View.VISIBLE
+                        && sibling.getLeft() < child.getRight() && child.getLeft() < sibling.getRight()
+                        && sibling.getTop() < child.getBottom() && child.getTop() < sibling.getBottom()) {
+                    mOverlaps[i] = true;
+                    mOverlaps[j] = true;
+                }
+            }
+        }
+        mOverlapsCount = childCount;
+    }
+
+    /**
+     * 与 GradientDrawable 相同: 填充与描边都绘制在内缩半个描边宽度的矩形上, 圆角不超过短边的一半
+     */
+    private void drawShape(Canvas canvas, View child, JrvDrawable background) {
+        float inset = background.getStrokeWidth() * 0.5f;
+        mRect.set(child.getLeft() + inset, child.getTop() + inset, child.getRight() - inset, child.getBottom() - inset);
+        background.computeRadii(child.getWidth(), child.getHeight(), mRadii);
+        float radius = Math.min(mRadii[0], Math.min(mRect.width(), mRect.height()) * 0.5f);
+        if (radius > 0) {
+            canvas.drawRoundRect(mRect, radius, radius, mPaint);
+        } else {
+            canvas.drawRect(mRect, mPaint);
+        }
+    }
+
+    private void sortByFill() {
+        // 插入排序, 子 View 数量不多且多数已按颜色聚集
+        for (int i = 1; i < mCount; i++) {
+            View view = mViews[i];
+            JrvDrawable drawable = mDrawables[i];
+            int key = drawable.getBatchFillColor();
+            int j = i - 1;
+            while (j >= 0 && mDrawables[j].getBatchFillColor() > key) {
+                mViews[j + 1] = mViews[j];
+                mDrawables[j + 1] = mDrawables[j];
+                j--;
+            }
+            mViews[j + 1] = view;
+            mDrawables[j + 1] = drawable;
+        }
+    }
+
+    private void sortByStroke() {
+        for (int i = 1; i < mCount; i++) {
+            View view = mViews[i];
+            JrvDrawable drawable = mDrawables[i];
+            long key = strokeKey(drawable);
+            int j = i - 1;
+            while (j >= 0 && strokeKey(mDrawables[j]) > key) {
+                mViews[j + 1] = mViews[j];
+                mDrawables[j + 1] = mDrawables[j];
+                j--;
+            }
+            mViews[j + 1] = view;
+            mDrawables[j + 1] = drawable;
+        }
+    }
+
+    private static long strokeKey(JrvDrawable drawable) {
+        return ((long) drawable.getBatchStrokeColor() << 32) | drawable.getStrokeWidth();
+    }
+}
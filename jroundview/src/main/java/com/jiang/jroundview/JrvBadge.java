@@ -0,0 +1,218 @@
+package com.jiang.jroundview;
+
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.DisplayMetrics;
+import android.view.Gravity;
+import android.view.View;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+
+/**
+ * 由 Jrv 控件在自身 draw 中绘制的角标/小红点, 不需要额外的 View。
+ * <ul>
+ * <li>文字为 null 时不显示, 为空字符串时显示小红点。</li>
+ * <li>文字宽度只在文字变化时测量一次, 背景使用胶囊形状直接绘制, 不创建 Path。</li>
+ * <li>变化时只刷新宿主 View 自身, 硬件加速时只重新录制宿主的绘制指令, 不影响其他 View。</li>
+ * </ul>
+ */
+class JrvBadge {
+
+    private static final int DEFAULT_COLOR = 0xFFFA3246;
+    private static final int DEFAULT_GRAVITY = Gravity.TOP | Gravity.END;
+    private static final int MAX_COUNT = 99;
+
+    private final View mHost;
+    private final Paint mBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private String mText;
+    private int mGravity = DEFAULT_GRAVITY;
+    private int mOffsetX;
+    private int mOffsetY;
+    private final int mPaddingHorizontal;
+    private final int mDotSize;
+    /**
+     * 缓存的测量结果, 只在文字或字号变化时更新
+     */
+    private float mTextWidth;
+    private float mTextHeight;
+    private float mTextAscent;
+    private float mTextBaseline;
+    /**
+     * 角标相对 View 左上角的位置, 大小或设置变化时重新计算
+     */
+    private final Rect mBounds = new Rect();
+    private final RectF mDrawBounds = new RectF();
+    private final Rect mContainer = new Rect();
+    private int mLayoutWidth = -1;
+    private int mLayoutHeight = -1;
+    private int mLayoutDirection = -1;
+
+    JrvBadge(View host) {
+        mHost = host;
+        DisplayMetrics metrics = host.getResources().getDisplayMetrics();
+        mPaddingHorizontal = Math.round(4 * metrics.density);
+        mDotSize = Math.round(8 * metrics.density);
+        mBackgroundPaint.setColor(DEFAULT_COLOR);
+        mTextPaint.setColor(Color.WHITE);
+        mTextPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
+        setTextSizeInternal(10 * metrics.scaledDensity);
+    }
+
+    /**
+     * 从 xml 属性创建角标, 没有设置任何 jrv_badge* 属性时返回 null
+     */
+    @Nullable
+    static JrvBadge fromTypedArray(View host, TypedArray typedArray) {
+        if (!typedArray.hasValue(R.styleable.JrvTextView_jrv_badgeText)
+                && !typedArray.hasValue(R.styleable.JrvTextView_jrv_badgeColor)) {
+            return null;
+        }
+        JrvBadge badge = new JrvBadge(host);
+        badge.mText = typedArray.getString(R.styleable.JrvTextView_jrv_badgeText);
+        badge.mBackgroundPaint.setColor(typedArray.getColor(R.styleable.JrvTextView_jrv_badgeColor, DEFAULT_COLOR));
+        badge.mTextPaint.setColor(typedArray.getColor(R.styleable.JrvTextView_jrv_badgeTextColor, Color.WHITE));
+        if (typedArray.hasValue(R.styleable.JrvTextView_jrv_badgeTextSize)) {
+            badge.setTextSizeInternal(typedArray.getDimension(R.styleable.JrvTextView_jrv_badgeTextSize, 0));
+        }
+        badge.mGravity = typedArray.getInt(R.styleable.JrvTextView_jrv_badgeGravity, DEFAULT_GRAVITY);
+        badge.mOffsetX = typedArray.getDimensionPixelOffset(R.styleable.JrvTextView_jrv_badgeOffsetX, 0);
+        badge.mOffsetY = typedArray.getDimensionPixelOffset(R.styleable.JrvTextView_jrv_badgeOffsetY, 0);
+        badge.measureText();
+        return badge;
+    }
+
+    /**
+     * @param text null 时不显示, 空字符串时显示小红点
+     */
+    void setText(@Nullable CharSequence text) {
+        String newText = text == null ? null : text.toString();
+        if (TextUtils.equals(mText, newText)) {
+            return;
+        }
+        mText = newText;
+        measureText();
+        mLayoutWidth = -1;
+        mHost.invalidate();
+    }
+
+    /**
+     * @param count 小于等于 0 时不显示, 大于 99 时显示 99+
+     */
+    void setCount(int count) {
+        if (count <= 0) {
+            setText(null);
+        } else if (count > MAX_COUNT) {
+            setText(MAX_COUNT + "+");
+        } else {
+            setText(String.valueOf(count));
+        }
+    }
+
+    @Nullable
+    String getText() {
+        return mText;
+    }
+
+    void setColor(@ColorInt int color) {
+        if (mBackgroundPaint.getColor() != color) {
+            mBackgroundPaint.setColor(color);
+            invalidate();
+        }
+    }
+
+    void setTextColor(@ColorInt int color) {
+        if (mTextPaint.getColor() != color) {
+            mTextPaint.setColor(color);
+            invalidate();
+        }
+    }
+
+    /**
+     * @param gravity {@link Gravity#TOP} | {@link Gravity#END} 等
+     * @param offsetX 水平方向向内的偏移量, 单位是px
+     * @param offsetY 竖直方向向内的偏移量, 单位是px
+     */
+    void setGravity(int gravity, int offsetX, int offsetY) {
+        mGravity = gravity;
+        mOffsetX = offsetX;
+        mOffsetY = offsetY;
+        requestLayoutAndInvalidate();
+    }
+
+    void draw(Canvas canvas) {
+        if (mText == null) {
+            return;
+        }
+        updateBounds();
+        mDrawBounds.set(mBounds);
+        mDrawBounds.offset(mHost.getScrollX(), mHost.getScrollY());
+        float radius = mDrawBounds.height() / 2;
+        canvas.drawRoundRect(mDrawBounds, radius, radius, mBackgroundPaint);
+        if (mText.length() > 0) {
+            canvas.drawText(mText, mDrawBounds.centerX(), mDrawBounds.top + mTextBaseline, mTextPaint);
+        }
+    }
+
+    private void setTextSizeInternal(float textSize) {
+        mTextPaint.setTextSize(textSize);
+        Paint.FontMetrics metrics = mTextPaint.getFontMetrics();
+        mTextAscent = metrics.ascent;
+        mTextHeight = metrics.descent - metrics.ascent;
+    }
+
+    private void measureText() {
+        mTextWidth = mText == null || mText.length() == 0 ? 0 : mTextPaint.measureText(mText);
+    }
+
+    /**
+     * 按当前大小与设置计算角标位置, 没有变化时直接返回
+     */
+    private void updateBounds() {
+        int width = mHost.getWidth();
+        int height = mHost.getHeight();
+        int layoutDirection = ViewCompat.getLayoutDirection(mHost);
+        if (width == mLayoutWidth && height == mLayoutHeight && layoutDirection == mLayoutDirection) {
+            return;
+        }
+        mLayoutWidth = width;
+        mLayoutHeight = height;
+        mLayoutDirection = layoutDirection;
+        int badgeHeight;
+        int badgeWidth;
+        if (mText == null || mText.length() == 0) {
+            badgeHeight = badgeWidth = mDotSize;
+        } else {
+            badgeHeight = (int) Math.ceil(mTextHeight);
+            badgeWidth = Math.max(badgeHeight, (int) Math.ceil(mTextWidth) + mPaddingHorizontal * 2);
+            // 文字垂直居中
+            mTextBaseline = (badgeHeight - mTextHeight) / 2 - mTextAscent;
+        }
+        mContainer.set(0, 0, width, height);
+        Gravity.apply(mGravity, badgeWidth, badgeHeight, mContainer, mOffsetX, mOffsetY, mBounds, layoutDirection);
+    }
+
+    private void requestLayoutAndInvalidate() {
+        mLayoutWidth = -1;
+        invalidate();
+    }
+
+    /**
+     * 显示时刷新宿主 View; invalidate(Rect) 在 API 28 已废弃, 硬件加速时也会忽略区域, 所以不计算脏区域
+     */
+    private void invalidate() {
+        if (mText != null) {
+            mHost.invalidate();
+        }
+    }
+}
@@ -2,11 +2,16 @@ package com.jiang.jroundview;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
-import android.graphics.drawable.Drawable;
+import android.graphics.Canvas;
 import android.graphics.drawable.GradientDrawable;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
 import androidx.constraintlayout.widget.ConstraintLayout;
 
 /**
@@ -14,6 +19,11 @@ import androidx.constraintlayout.widget.ConstraintLayout;
  */
 public class JrvConstraintLayout extends ConstraintLayout implements JrvInterface<JrvConstraintLayout> {
 
+    /**
+     * 角标, 没有设置时为 null
+     */
+    private JrvBadge mBadge;
+
     public JrvConstraintLayout(Context context) {
         this(context, null);
     }
@@ -28,8 +38,7 @@ public class JrvConstraintLayout extends ConstraintLayout implements JrvInterfac
     }
 
     private void init(Context context, AttributeSet attrs, int defStyleAttr) {
-        JrvDrawable bg = JrvDrawable.fromAttributeSet(context, attrs, defStyleAttr);
-        JrvHelper.setBackgroundKeepingPadding(this, bg);
+        mBadge = JrvHelper.init(this, context, attrs, defStyleAttr);
     }
 
     /**
@@ -39,10 +48,10 @@ public class JrvConstraintLayout extends ConstraintLayout implements JrvInterfac
      */
     @Override
     public JrvConstraintLayout setJrvBackgroundColor(@ColorInt int color) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
             ColorStateList colorStateList = ColorStateList.valueOf(color);
-            ((JrvDrawable) background).setBgData(colorStateList);
+            background.setBgData(colorStateList);
         }
         return this;
     }
@@ -56,10 +65,10 @@ public class JrvConstraintLayout extends ConstraintLayout implements JrvInterfac
      */
     @Override
     public JrvConstraintLayout setJrvBorderWidthColor(int width, @ColorInt int color) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
             ColorStateList colorStateList = ColorStateList.valueOf(color);
-            ((JrvDrawable) background).setStrokeData(width, colorStateList);
+            background.setStrokeData(width, colorStateList);
         }
         return this;
     }
@@ -71,9 +80,9 @@ public class JrvConstraintLayout extends ConstraintLayout implements JrvInterfac
      */
     @Override
     public JrvConstraintLayout setJrvIsRadiusAdjustBounds(boolean isRadiusAdjustBounds) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setIsRadiusAdjustBounds(isRadiusAdjustBounds);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setIsRadiusAdjustBounds(isRadiusAdjustBounds);
         }
         return this;
     }
@@ -85,9 +94,9 @@ public class JrvConstraintLayout extends ConstraintLayout implements JrvInterfac
      */
     @Override
     public JrvConstraintLayout setJrvRadius(float radius) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setRadius(radius);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadius(radius);
         }
         return this;
     }
@@ -103,9 +112,35 @@ public class JrvConstraintLayout extends ConstraintLayout implements JrvInterfac
      */
     @Override
     public JrvConstraintLayout setJrvRadius(float topLeftRadius, float topRightRadius, float bottomRightRadius, float bottomLeftRadius) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setRadius(topLeftRadius, topRightRadius, bottomLeftRadius, bottomRightRadius);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadius(topLeftRadius, topRightRadius, bottomLeftRadius, bottomRightRadius);
+        }
+        return this;
+    }
+
+    /**
+     * 设置圆角大小为短边的百分比
+     *
+     * @param percent 相对短边的比例, 如 0.5f 即为半圆
+     */
+    @Override
+    public JrvConstraintLayout setJrvRadiusPercent(float percent) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadiusPercent(percent);
+        }
+        return this;
+    }
+
+    /**
+     * 分别设置view 的四个圆角大小为短边的百分比
+     */
+    @Override
+    public JrvConstraintLayout setJrvRadiusPercent(float topLeftPercent, float topRightPercent, float bottomRightPercent, float bottomLeftPercent) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadiusPercent(topLeftPercent, topRightPercent, bottomRightPercent, bottomLeftPercent);
         }
         return this;
     }
@@ -116,9 +151,9 @@ public class JrvConstraintLayout extends ConstraintLayout implements JrvInterfac
     @Override
     public JrvConstraintLayout setGradient(@ColorInt int[] colors) {
         if (colors != null && colors.length > 0) {
-            Drawable background = getBackground();
-            if (background instanceof JrvDrawable) {
-                ((JrvDrawable) background).setGradient(colors);
+            JrvDrawable background = JrvHelper.getJrvBackground(this);
+            if (background != null) {
+                background.setGradient(colors);
             }
         }
         return this;
@@ -126,10 +161,157 @@ public class JrvConstraintLayout extends ConstraintLayout implements JrvInterfac
 
     @Override
     public JrvConstraintLayout setGradientOrientation(GradientDrawable.Orientation orientation) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setOrientation(orientation);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setOrientation(orientation);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout addJrvLayer(@StyleRes int layerStyle) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.addLayer(getContext(), layerStyle);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout clearJrvLayers() {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.clearLayers();
+        }
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout setJrvStyleSpec(@NonNull JrvStyleSpec spec) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.applySpec(spec, getResources().getDisplayMetrics().density);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout setJrvShapeHitTest(boolean shapeHitTest) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setShapeHitTest(shapeHitTest);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout setJrvRippleColor(@Nullable ColorStateList color) {
+        JrvHelper.setRippleColor(this, color);
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout setJrvBorderProgress(float progress) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setBorderProgress(progress);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout setJrvBorderProgressStyle(@Nullable ColorStateList color, int width, int startGravity) {
+        JrvHelper.setBorderProgressStyle(this, color, width, startGravity);
+        return this;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (JrvHelper.isTouchOutsideShape(this, event)) {
+            return false;
+        }
+        return super.dispatchTouchEvent(event);
+    }
+
+    @Override
+    public JrvConstraintLayout setJrvBadgeText(@Nullable CharSequence text) {
+        if (text != null || mBadge != null) {
+            mBadge = JrvHelper.obtainBadge(this, mBadge);
+            mBadge.setText(text);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout setJrvBadgeCount(int count) {
+        if (count > 0 || mBadge != null) {
+            mBadge = JrvHelper.obtainBadge(this, mBadge);
+            mBadge.setCount(count);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout setJrvBadgeColor(@ColorInt int color) {
+        mBadge = JrvHelper.obtainBadge(this, mBadge);
+        mBadge.setColor(color);
+        return this;
+    }
+
+    @Override
+    public JrvConstraintLayout setJrvBadgeGravity(int gravity, int offsetX, int offsetY) {
+        mBadge = JrvHelper.obtainBadge(this, mBadge);
+        mBadge.setGravity(gravity, offsetX, offsetY);
+        return this;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        boolean profiling = JrvProfiler.isEnabled();
+        long start = profiling ? System.nanoTime() : 0;
+        super.draw(canvas);
+        if (mBadge != null) {
+            mBadge.draw(canvas);
         }
+        if (profiling) {
+            JrvProfiler.recordViewDraw(this, start);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        JrvOverdraw.onLayout(this, changed);
+        JrvBackgroundBatch.onLayout(this);
+    }
+
+    /**
+     * 开启后由本布局合批绘制子 View 中简单且静止的 Jrv 背景, 适用于大量标签等场景, 见 {@link JrvBackgroundBatch}
+     */
+    public JrvConstraintLayout setJrvBatchChildBackgrounds(boolean enabled) {
+        JrvBackgroundBatch.setEnabled(this, enabled);
         return this;
     }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        int saveCount = JrvHelper.clipToShape(this, canvas);
+        JrvBackgroundBatch.draw(this, canvas);
+        super.dispatchDraw(canvas);
+        if (saveCount >= 0) {
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        JrvBackgroundBatch.onViewRemoved(this, child);
+    }
+
+    @Override
+    public void onDescendantInvalidated(@NonNull View child, @NonNull View target) {
+        super.onDescendantInvalidated(child, target);
+        JrvBackgroundBatch.onDescendantInvalidated(this, child);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.jiang.jroundview;
+
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.WeakHashMap;
+
+/**
+ * 调试用的浮层, 在 Activity 的 decorView 的 {@link android.view.ViewOverlay} 上一次性标注页面中所有 Jrv 背景。
+ * <p>
+ * <ul>
+ * <li>底色表示背景的来源: 绿色为 {@link JrvSpecTable} 命中, 蓝色为 {@link JrvStateCache} 命中,
+ * 黄色为未命中、解析了 xml 属性, 灰色为代码创建。</li>
+ * <li>左上角文字: "r" 为按大小重新计算圆角与状态变化时重新设置颜色的次数, 两次刷新之间仍在增长的以红色显示;
+ * "od" 为绘制在该背景之下的背景层数, 被 {@link JrvOverdraw} 跳过填充的显示 "skip"。</li>
+ * <li>描边为红色表示填充下面已经有 2 层以上背景。</li>
+ * </ul>
+ * 只在 debuggable 的 App 中生效, release 包中 {@link #install(Activity)} 不做任何事; 每 {@link #REFRESH_INTERVAL} 毫秒刷新一次,
+ * 只能在主线程调用。
+ */
+public final class JrvDebugOverlay {
+
+    private static final long REFRESH_INTERVAL = 500;
+
+    private JrvDebugOverlay() {
+    }
+
+    /**
+     * 在 Activity 的窗口上显示浮层, 重复调用只显示一个
+     */
+    public static void install(@NonNull Activity activity) {
+        if ((activity.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            return;
+        }
+        View decorView = activity.getWindow().getDecorView();
+        if (decorView.getTag(R.id.jrv_debug_overlay) != null) {
+            return;
+        }
+        OverlayDrawable drawable = new OverlayDrawable(decorView);
+        decorView.setTag(R.id.jrv_debug_overlay, drawable);
+        decorView.getOverlay().add(drawable);
+        drawable.start();
+    }
+
+    public static void uninstall(@NonNull Activity activity) {
+        View decorView = activity.getWindow().getDecorView();
+        Object tag = decorView.getTag(R.id.jrv_debug_overlay);
+        if (tag instanceof OverlayDrawable) {
+            OverlayDrawable drawable = (OverlayDrawable) tag;
+            drawable.stop();
+            decorView.getOverlay().remove(drawable);
+            decorView.setTag(R.id.jrv_debug_overlay, null);
+        }
+    }
+
+    private static final class OverlayDrawable extends Drawable implements Runnable {
+
+        private static final int COLOR_SPEC_TABLE = 0x3300C853;
+        private static final int COLOR_STATE_CACHE = 0x332979FF;
+        private static final int COLOR_PARSED = 0x33FFD600;
+        private static final int COLOR_CODE = 0x33000000;
+
+        private final View mDecorView;
+        private final Paint mFillPaint = new Paint();
+        private final Paint mStrokePaint = new Paint();
+        private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final int[] mLocation = new int[2];
+        private final int[] mDecorLocation = new int[2];
+        private final StringBuilder mLabel = new StringBuilder();
+        /**
+         * 上一次刷新时各个背景的重新计算次数, 用于找出仍在不断重新计算的背景
+         */
+        private final WeakHashMap<JrvDrawable, int[]> mLastRebuilds = new WeakHashMap<>();
+        private boolean mRunning;
+
+        OverlayDrawable(View decorView) {
+            mDecorView = decorView;
+            float density = decorView.getResources().getDisplayMetrics().density;
+            mStrokePaint.setStyle(Paint.Style.STROKE);
+            mStrokePaint.setStrokeWidth(density);
+            mTextPaint.setTextSize(9 * density);
+        }
+
+        void start() {
+            mRunning = true;
+            setBounds(0, 0, mDecorView.getWidth(), mDecorView.getHeight());
+            mDecorView.postDelayed(this, REFRESH_INTERVAL);
+        }
+
+        void stop() {
+            mRunning = false;
+            mDecorView.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            if (mRunning) {
+                setBounds(0, 0, mDecorView.getWidth(), mDecorView.getHeight());
+                invalidateSelf();
+                mDecorView.postDelayed(this, REFRESH_INTERVAL);
+            }
+        }
+
+        @Override
+        public void draw(@NonNull Canvas canvas) {
+            mDecorView.getLocationInWindow(mDecorLocation);
+            drawTree(canvas, mDecorView);
+        }
+
+        private void drawTree(Canvas canvas, View view) {
+            if (view.getVisibility() != View.VISIBLE) {
+                return;
+            }
+            JrvDrawable background = JrvHelper.getJrvBackground(view);
+            if (background != null && view.getWidth() > 0 && view.getHeight() > 0) {
+                annotate(canvas, view, background);
+            }
+            if (view instanceof ViewGroup) {
+                ViewGroup group = (ViewGroup) view;
+                for (int i = 0; i < group.getChildCount(); i++) {
+                    drawTree(canvas, group.getChildAt(i));
+                }
+            }
+        }
+
+        private void annotate(Canvas canvas, View view, JrvDrawable background) {
+            view.getLocationInWindow(mLocation);
+            float left = mLocation[0] - mDecorLocation[0];
+            float top = mLocation[1] - mDecorLocation[1];
+            float right = left + view.getWidth();
+            float bottom = top + view.getHeight();
+
+            mFillPaint.setColor(colorOf(background.getOrigin()));
+            canvas.drawRect(left, top, right, bottom, mFillPaint);
+
+            int underneath = countBackgroundsUnderneath(view);
+            mStrokePaint.setColor(underneath >= 2 ? Color.RED : 0x66000000);
+            canvas.drawRect(left, top, right, bottom, mStrokePaint);
+
+            int rebuilds = background.getRebuildCount();
+            int[] last = mLastRebuilds.get(background);
+            boolean growing = last != null && last[0] != rebuilds;
+            if (last == null) {
+                mLastRebuilds.put(background, new int[]{rebuilds});
+            } else {
+                last[0] = rebuilds;
+            }
+            mLabel.setLength(0);
+            mLabel.append("r").append(rebuilds).append(" od");
+            if (background.isFillSkipped()) {
+                mLabel.append(":skip");
+            } else {
+                mLabel.append(underneath);
+            }
+            mTextPaint.setColor(growing ? Color.RED : Color.BLACK);
+            canvas.drawText(mLabel, 0, mLabel.length(), left + 2, top - mTextPaint.ascent() + 1, mTextPaint);
+        }
+
+        /**
+         * 祖先中设置了背景的 View 的数量, 即绘制在该 View 背景之下的背景层数
+         */
+        private int countBackgroundsUnderneath(View view) {
+            int count = 0;
+            ViewParent parent = view.getParent();
+            while (parent instanceof View) {
+                Drawable background = ((View) parent).getBackground();
+                if (background != null && background.getOpacity() != PixelFormat.TRANSPARENT) {
+                    count++;
+                }
+                parent = parent.getParent();
+            }
+            return count;
+        }
+
+        private static int colorOf(int origin) {
+            switch (origin) {
+                case JrvDrawable.ORIGIN_SPEC_TABLE:
+                    return COLOR_SPEC_TABLE;
+                case JrvDrawable.ORIGIN_STATE_CACHE:
+                    return COLOR_STATE_CACHE;
+                case JrvDrawable.ORIGIN_PARSED:
+                    return COLOR_PARSED;
+                default:
+                    return COLOR_CODE;
+            }
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+        }
+
+        @Override
+        public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+    }
+}
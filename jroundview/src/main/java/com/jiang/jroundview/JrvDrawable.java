@@ -1,20 +1,39 @@
 package com.jiang.jroundview;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.ColorStateList;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.LinearGradient;
+import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
 
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.SparseArray;
+import android.view.View;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -24,155 +43,1613 @@ import java.util.List;
  * <li>使用 {@link #setBgData(ColorStateList)} 设置背景色。</li>
  * <li>使用 {@link #setStrokeData(int, ColorStateList)} 设置描边大小、描边颜色。</li>
  * <li>使用 {@link #setIsRadiusAdjustBounds(boolean)} 设置圆角大小是否自动适应为 {@link android.view.View} 的高度的一半, 默认为 true。</li>
+ * <li>使用 {@link #setRadiusPercent(float, float, float, float)} 设置相对短边的百分比圆角, 相邻圆角之和超过边长时按 CSS 规则等比缩小。</li>
+ * <li>使用 {@link #addLayer(JrvDrawable, int, int, int, int)} 叠加多个形状图层, 替代多层嵌套的 Jrv 控件。</li>
+ * <li>支持 {@link #setTintList(ColorStateList)} 与 {@link #setTintMode(PorterDuff.Mode)}, 所有版本都生效。</li>
+ * <li>填充与描边只有一个可见且颜色随状态变化时, 以不透明的基础色绘制, 状态颜色通过 SRC_IN 滤镜实现,
+ * 按下、禁用等状态变化时只切换缓存的滤镜, 不重新设置画笔颜色。</li>
+ * <li>通过 jrv_shape 等属性使用优惠券、聊天气泡、票据等参数化形状, 见 {@link JrvShape}。</li>
+ * <li>使用 {@link #setBorderProgress(float)} 沿边框绘制倒计时、上传等进度, 边框轮廓按大小与圆角测量一次,
+ * 修改进度时只截取一次轮廓。</li>
  * </ul>
  */
-class JrvDrawable extends GradientDrawable {
+class JrvDrawable extends GradientDrawable implements Drawable.Callback {
+
+    /**
+     * 背景的来源, 见 {@link #getOrigin()}
+     */
+    static final int ORIGIN_CODE = 0;
+    static final int ORIGIN_PARSED = 1;
+    static final int ORIGIN_STATE_CACHE = 2;
+    static final int ORIGIN_SPEC_TABLE = 3;
+
+    /**
+     * 进度边框开始的圆角, 取值同 jrv_borderProgressStart
+     */
+    static final int PROGRESS_START_TOP_LEFT = 0;
+    static final int PROGRESS_START_TOP_RIGHT = 1;
+    static final int PROGRESS_START_BOTTOM_RIGHT = 2;
+    static final int PROGRESS_START_BOTTOM_LEFT = 3;
 
     /**
      * 圆角大小是否自适应为 View 的高度的一般
      */
-    private boolean mRadiusAdjustBounds = true;
-    private ColorStateList mFillColors;
-    private int mStrokeWidth = 0;
-    private ColorStateList mStrokeColors;
-    private int[] mGradientColors;
+    private boolean mRadiusAdjustBounds = true;
+    private ColorStateList mFillColors;
+    private int mStrokeWidth = 0;
+    private ColorStateList mStrokeColors;
+    private int[] mGradientColors;
+    /**
+     * 叠加在当前形状之上的图层, 按顺序绘制
+     */
+    private List<Layer> mLayers;
+    /**
+     * 通过 {@link #applySpec(JrvStyleSpec, float)} 设置的共享样式, 之后通过其他方法修改样式时置空
+     */
+    private JrvStyleSpec mSpec;
+    private float mSpecDensity;
+    /**
+     * 指定的圆角, 单位是px, 顺序为左上、右上、右下、左下
+     */
+    private final float[] mCornerRadii = new float[4];
+    /**
+     * 通过 {@link #setCornerRadii(float[])} 设置的椭圆圆角的竖直半径, 只在 mEllipticalRadii 为 true 时使用, mCornerRadii 为水平半径
+     */
+    private final float[] mCornerRadiiY = new float[4];
+    private boolean mEllipticalRadii;
+    /**
+     * 相对短边的圆角比例, 顺序为左上、右上、右下、左下, 小于 0 表示使用 mCornerRadii
+     */
+    private final float[] mCornerRadiusPercents = new float[]{-1, -1, -1, -1};
+    /**
+     * 相邻圆角之和超过边长时是否按 CSS 规则等比缩小所有圆角
+     */
+    private boolean mRadiusClamp = true;
+    /**
+     * 按当前大小计算出的圆角, 顺序同 {@link #setCornerRadii(float[])}, 复用同一个数组, 也用于点击区域判断
+     */
+    private final float[] mResolvedRadii = new float[8];
+    /**
+     * mResolvedRadii 对应的大小, 大小不变时不重新计算圆角
+     */
+    private int mResolvedWidth = -1;
+    private int mResolvedHeight = -1;
+    /**
+     * 是否只响应形状内的点击
+     */
+    private boolean mShapeHitTest;
+    /**
+     * 通过 {@link #setBgData(ColorStateList)} 设置的背景色, 用于恢复被跳过的填充
+     */
+    private ColorStateList mBgColors;
+    /**
+     * 通过 {@link #setStrokeData(int, ColorStateList)} 设置的描边颜色, 用于复制样式
+     */
+    private ColorStateList mBorderColors;
+    /**
+     * 填充被祖先背景完全覆盖时不绘制, 见 {@link JrvOverdraw}
+     */
+    private boolean mFillSkipped;
+    /**
+     * 正在运行的颜色动画数量与当前帧的填充色, 动画期间直接设置填充色, 不修改 mBgColors, 见 {@link JrvAnimator#ofBackgroundColor(android.view.View, int...)}
+     */
+    private int mFillAnimations;
+    @ColorInt
+    private int mAnimatedFillColor;
+    /**
+     * 在 {@link JrvProfiler} 中的统计位置, 样式变化后重新分配
+     */
+    private int mProfileSlot = -1;
+    /**
+     * 按下时的水波纹颜色, 设置背景或水波纹颜色时包装为 RippleDrawable, 见 {@link JrvHelper#setRippleColor(android.view.View, ColorStateList)}
+     */
+    private ColorStateList mRippleColor;
+    /**
+     * 创建方式与重新计算形状、颜色的次数, 用于 {@link JrvDebugOverlay}
+     */
+    private int mOrigin = ORIGIN_CODE;
+    private int mRebuildCount;
+    /**
+     * 由父 View 合批绘制时不自己绘制, 见 {@link JrvBackgroundBatch}
+     */
+    private View mBatchedBy;
+    /**
+     * 着色, 见 {@link #setTintList(ColorStateList)}
+     */
+    private ColorStateList mTint;
+    private PorterDuff.Mode mTintMode = PorterDuff.Mode.SRC_IN;
+    /**
+     * App 通过 {@link #setColorFilter(ColorFilter)} 设置的滤镜, 优先于着色与状态滤镜
+     */
+    private ColorFilter mUserColorFilter;
+    /**
+     * 通过状态滤镜实现的填充色或描边色, 为 null 时按原方式在状态变化时设置颜色
+     */
+    private ColorStateList mStateFilterColors;
+    /**
+     * 按颜色缓存的滤镜, 数量不超过着色或状态颜色中不同颜色的数量
+     */
+    private final SparseArray<ColorFilter> mFilterCache = new SparseArray<>(2);
+    /**
+     * 当前设置给 GradientDrawable 的滤镜
+     */
+    private ColorFilter mAppliedFilter;
+    /**
+     * 参数化形状, 为 null 时为圆角矩形
+     */
+    private JrvShape mShape;
+    /**
+     * Jrv 布局是否将子 View 裁剪为背景的形状
+     */
+    private boolean mClipToShape;
+    /**
+     * 绘制参数化形状时填充与描边共用的画笔, 以及按大小缓存的渐变
+     */
+    private Paint mShapePaint;
+    private Shader mShapeShader;
+    private int mShaderWidth = -1;
+    private int mShaderHeight = -1;
+    /**
+     * 计算参数化形状的阴影轮廓时复用
+     */
+    private final RectF mOutlineRect = new RectF();
+    /**
+     * 大于 0 时不允许合批, 如 View 正在执行属性动画
+     */
+    private int mBatchSuppressCount;
+    /**
+     * 沿边框绘制的进度, 小于 0 时不绘制, 见 {@link #setBorderProgress(float)}
+     */
+    private float mProgress = -1;
+    private ColorStateList mProgressColors;
+    private int mProgressWidth;
+    private int mProgressStart = PROGRESS_START_TOP_LEFT;
+    /**
+     * 按大小与圆角测量的进度轮廓, 轮廓变化前只截取复用的 mProgressSegment
+     */
+    private PathMeasure mProgressMeasure;
+    private Path mProgressOutline;
+    private Path mProgressSegment;
+    private RectF mProgressOval;
+    private Paint mProgressPaint;
+    private float mProgressLength;
+    private boolean mProgressOutlineDirty = true;
+
+    /**
+     * 设置按钮的背景色(只支持纯色,不支持 Bitmap 或 Drawable)
+     */
+    public void setBgData(@Nullable ColorStateList colors) {
+        clearSpec();
+        mBgColors = colors;
+        if (!mFillSkipped) {
+            applyBgColors(colors);
+        }
+        updateStateFilterMode();
+        JrvOverdraw.onAppearanceChanged(this);
+    }
+
+    private void applyBgColors(@Nullable ColorStateList colors) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setColor(colors);
+        } else {
+            mFillColors = colors;
+            final int currentColor;
+            if (colors == null) {
+                currentColor = Color.TRANSPARENT;
+            } else {
+                currentColor = colors.getColorForState(getState(), 0);
+            }
+            setColor(currentColor);
+        }
+    }
+
+    public void setGradient(List<ColorStateList> list) {
+        if (list != null && list.size() > 0) {
+            int[] colors = new int[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                ColorStateList color = list.get(i);
+                colors[i] = color.getColorForState(getState(), 0);
+            }
+            setGradient(colors);
+        }
+    }
+
+    /**
+     * 设置渐变色
+     */
+    public void setGradient(@ColorInt int[] colors) {
+        clearSpec();
+        mGradientColors = colors;
+        mShapeShader = null;
+        if (colors != null && colors.length > 0) {
+            setFillSkipped(false);
+            setColors(colors);
+        }
+        updateStateFilterMode();
+        JrvOverdraw.onAppearanceChanged(this);
+    }
+
+    /**
+     * 设置按钮的描边粗细和颜色
+     */
+    public void setStrokeData(int width, @Nullable ColorStateList colors) {
+        clearSpec();
+        mStrokeWidth = width;
+        mBorderColors = colors;
+        applyStrokeColors(width, colors);
+        updateStateFilterMode();
+        JrvOverdraw.onAppearanceChanged(this);
+    }
+
+    private void applyStrokeColors(int width, @Nullable ColorStateList colors) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            super.setStroke(width, colors);
+        } else {
+            mStrokeColors = colors;
+            final int currentColor;
+            if (colors == null) {
+                currentColor = Color.TRANSPARENT;
+            } else {
+                currentColor = colors.getColorForState(getState(), 0);
+            }
+            setStroke(width, currentColor);
+        }
+    }
+
+    /**
+     * 着色, 颜色随状态变化时只切换缓存的滤镜; 设置了 {@link #setColorFilter(ColorFilter)} 时不生效
+     */
+    @Override
+    public void setTintList(@Nullable ColorStateList tint) {
+        if (mTint != tint) {
+            mTint = tint;
+            mFilterCache.clear();
+            updateStateFilterMode();
+        }
+        if (mLayers != null) {
+            for (int i = 0; i < mLayers.size(); i++) {
+                mLayers.get(i).drawable.setTintList(tint);
+            }
+        }
+    }
+
+    @Override
+    public void setTintMode(@Nullable PorterDuff.Mode tintMode) {
+        if (tintMode == null) {
+            tintMode = PorterDuff.Mode.SRC_IN;
+        }
+        if (mTintMode != tintMode) {
+            mTintMode = tintMode;
+            mFilterCache.clear();
+            updateFilter(getState());
+        }
+        if (mLayers != null) {
+            for (int i = 0; i < mLayers.size(); i++) {
+                mLayers.get(i).drawable.setTintMode(tintMode);
+            }
+        }
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        if (mUserColorFilter != colorFilter) {
+            mUserColorFilter = colorFilter;
+            updateStateFilterMode();
+        }
+        if (mLayers != null) {
+            for (int i = 0; i < mLayers.size(); i++) {
+                mLayers.get(i).drawable.setColorFilter(colorFilter);
+            }
+        }
+    }
+
+    /**
+     * 判断是否可以用状态滤镜代替按状态设置颜色: 没有着色与滤镜, 填充与描边只有一个可见且颜色随状态变化。
+     * SRC_IN 滤镜以状态颜色替换不透明的基础色, 抗锯齿边缘的透明度保持不变, 与直接设置颜色的结果相同; 图层有各自的滤镜, 不受影响
+     */
+    private void updateStateFilterMode() {
+        ColorStateList colors = null;
+        boolean fillVisible = (mGradientColors != null && mGradientColors.length > 0) || (mBgColors != null && !mFillSkipped);
+        boolean strokeVisible = mStrokeWidth > 0 && mBorderColors != null;
+        if (mTint == null && mUserColorFilter == null) {
+            if (fillVisible && !strokeVisible && mGradientColors == null && mFillAnimations == 0
+                    && mBgColors.isStateful()) {
+                colors = mBgColors;
+            } else if (strokeVisible && !fillVisible && mBorderColors.isStateful()) {
+                colors = mBorderColors;
+            }
+        }
+        ColorStateList previous = mStateFilterColors;
+        if (previous != colors) {
+            mStateFilterColors = colors;
+            mFilterCache.clear();
+            // 恢复原来以基础色绘制的填充或描边
+            if (previous != null && previous == mBgColors && !mFillSkipped && mGradientColors == null) {
+                applyBgColors(mBgColors);
+            } else if (previous != null && previous == mBorderColors) {
+                applyStrokeColors(mStrokeWidth, mBorderColors);
+            }
+        }
+        if (colors != null && colors == mBgColors) {
+            mFillColors = null;
+            super.setColor(Color.BLACK);
+        } else if (colors != null) {
+            mStrokeColors = null;
+            super.setStroke(mStrokeWidth, Color.BLACK);
+        }
+        updateFilter(getState());
+    }
+
+    /**
+     * 按状态选择滤镜, 优先级为 App 设置的滤镜、着色、状态滤镜
+     *
+     * @return 滤镜是否变化
+     */
+    private boolean updateFilter(int[] stateSet) {
+        ColorFilter filter = mUserColorFilter;
+        if (filter == null) {
+            ColorStateList source = mTint != null ? mTint : mStateFilterColors;
+            if (source != null) {
+                int color = source.getColorForState(stateSet, source.getDefaultColor());
+                filter = mFilterCache.get(color);
+                if (filter == null) {
+                    filter = new PorterDuffColorFilter(color, mTint != null ? mTintMode : PorterDuff.Mode.SRC_IN);
+                    mFilterCache.put(color, filter);
+                }
+            }
+        }
+        if (filter != mAppliedFilter) {
+            mAppliedFilter = filter;
+            super.setColorFilter(filter);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 设置圆角大小是否自动适应为 View 的高度的一半
+     */
+    public void setIsRadiusAdjustBounds(boolean isRadiusAdjustBounds) {
+        clearSpec();
+        mRadiusAdjustBounds = isRadiusAdjustBounds;
+        if (!mRadiusAdjustBounds) {
+            mEllipticalRadii = false;
+            Arrays.fill(mCornerRadii, 0);
+            Arrays.fill(mCornerRadiusPercents, -1);
+        }
+        invalidateRadii();
+    }
+
+    /**
+     * 设置统一圆角
+     */
+    public void setRadius(float radius) {
+        clearSpec();
+        if (radius >= 0) {
+            setRequestedRadii(radius, radius, radius, radius);
+        }
+    }
+
+    /**
+     * 分别设置各个圆角
+     */
+    public void setRadius(float radiusTopLeft, float radiusTopRight, float radiusBottomLeft, float radiusBottomRight) {
+        clearSpec();
+        if (radiusTopLeft > 0 || radiusTopRight > 0 || radiusBottomLeft > 0 || radiusBottomRight > 0) {
+            setRequestedRadii(radiusTopLeft, radiusTopRight, radiusBottomRight, radiusBottomLeft);
+        }
+    }
+
+    /**
+     * 设置统一圆角为短边的百分比, 如 0.5f 即为半圆, 大小变化时自动重新计算
+     *
+     * @param percent 相对短边的比例, 小于 0 表示取消
+     */
+    public void setRadiusPercent(float percent) {
+        setRadiusPercent(percent, percent, percent, percent);
+    }
+
+    /**
+     * 分别设置各个圆角为短边的百分比, 小于 0 的角继续使用 {@link #setRadius(float, float, float, float)} 指定的大小
+     */
+    public void setRadiusPercent(float topLeft, float topRight, float bottomRight, float bottomLeft) {
+        clearSpec();
+        mRadiusAdjustBounds = false;
+        mCornerRadiusPercents[0] = topLeft;
+        mCornerRadiusPercents[1] = topRight;
+        mCornerRadiusPercents[2] = bottomRight;
+        mCornerRadiusPercents[3] = bottomLeft;
+        invalidateRadii();
+    }
+
+    /**
+     * 设置相邻圆角之和超过边长时是否按 CSS 规则等比缩小所有圆角, 默认为 true
+     */
+    public void setRadiusClamp(boolean radiusClamp) {
+        if (mRadiusClamp != radiusClamp) {
+            mRadiusClamp = radiusClamp;
+            invalidateRadii();
+        }
+    }
+
+    private void setRequestedRadii(float topLeft, float topRight, float bottomRight, float bottomLeft) {
+        mRadiusAdjustBounds = false;
+        mEllipticalRadii = false;
+        mCornerRadii[0] = topLeft;
+        mCornerRadii[1] = topRight;
+        mCornerRadii[2] = bottomRight;
+        mCornerRadii[3] = bottomLeft;
+        Arrays.fill(mCornerRadiusPercents, -1);
+        invalidateRadii();
+    }
+
+    /**
+     * 圆角设置变化后按当前大小重新计算
+     */
+    private void invalidateRadii() {
+        mResolvedWidth = -1;
+        mResolvedHeight = -1;
+        resolveRadii(getBounds());
+        JrvOverdraw.onAppearanceChanged(this);
+    }
+
+    private void resolveRadii(Rect bounds) {
+        int width = bounds.width();
+        int height = bounds.height();
+        if (width == mResolvedWidth && height == mResolvedHeight) {
+            return;
+        }
+        mResolvedWidth = width;
+        mResolvedHeight = height;
+        mRebuildCount++;
+        mProgressOutlineDirty = true;
+        float[] radii = mResolvedRadii;
+        computeRadii(width, height, radii);
+        if (isUniform(radii)) {
+            super.setCornerRadius(radii[0]);
+        } else {
+            // GradientDrawable 只保存数组引用, 每次传入同一个数组即可
+            super.setCornerRadii(radii);
+        }
+    }
+
+    /**
+     * 按指定大小计算圆角, 不修改当前状态
+     *
+     * @param out 长度为 8, 顺序同 {@link #setCornerRadii(float[])}
+     */
+    void computeRadii(int width, int height, float[] out) {
+        float shortSide = Math.min(width, height);
+        float topLeft;
+        float topRight;
+        float bottomRight;
+        float bottomLeft;
+        float topLeftY;
+        float topRightY;
+        float bottomRightY;
+        float bottomLeftY;
+        if (mRadiusAdjustBounds) {
+            // 圆角为短边的一半
+            topLeft = topRight = bottomRight = bottomLeft = shortSide / 2;
+            topLeftY = topRightY = bottomRightY = bottomLeftY = topLeft;
+        } else {
+            topLeft = cornerRadius(0, shortSide, mCornerRadii);
+            topRight = cornerRadius(1, shortSide, mCornerRadii);
+            bottomRight = cornerRadius(2, shortSide, mCornerRadii);
+            bottomLeft = cornerRadius(3, shortSide, mCornerRadii);
+            float[] radiiY = mEllipticalRadii ? mCornerRadiiY : mCornerRadii;
+            topLeftY = cornerRadius(0, shortSide, radiiY);
+            topRightY = cornerRadius(1, shortSide, radiiY);
+            bottomRightY = cornerRadius(2, shortSide, radiiY);
+            bottomLeftY = cornerRadius(3, shortSide, radiiY);
+            if (mRadiusClamp) {
+                // 水平半径之和与宽度比较, 竖直半径之和与高度比较
+                float scale = 1;
+                scale = clampScale(scale, width, topLeft + topRight);
+                scale = clampScale(scale, width, bottomLeft + bottomRight);
+                scale = clampScale(scale, height, topLeftY + bottomLeftY);
+                scale = clampScale(scale, height, topRightY + bottomRightY);
+                if (scale < 1) {
+                    topLeft *= scale;
+                    topRight *= scale;
+                    bottomRight *= scale;
+                    bottomLeft *= scale;
+                    topLeftY *= scale;
+                    topRightY *= scale;
+                    bottomRightY *= scale;
+                    bottomLeftY *= scale;
+                }
+            }
+        }
+        out[0] = topLeft;
+        out[1] = topLeftY;
+        out[2] = topRight;
+        out[3] = topRightY;
+        out[4] = bottomRight;
+        out[5] = bottomRightY;
+        out[6] = bottomLeft;
+        out[7] = bottomLeftY;
+    }
+
+    private float cornerRadius(int corner, float shortSide, float[] radii) {
+        float percent = mCornerRadiusPercents[corner];
+        return percent >= 0 ? percent * shortSide : radii[corner];
+    }
+
+    /**
+     * @param radii 长度为 8, 顺序同 {@link #setCornerRadii(float[])}
+     * @return 四个角的水平与竖直半径是否全部相同
+     */
+    static boolean isUniform(float[] radii) {
+        for (int i = 1; i < 8; i++) {
+            if (radii[i] != radii[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 每个角的水平与竖直半径是否相同
+     */
+    static boolean isCircular(float[] radii) {
+        return radii[0] == radii[1] && radii[2] == radii[3] && radii[4] == radii[5] && radii[6] == radii[7];
+    }
+
+    private static float clampScale(float scale, int side, float radiusSum) {
+        if (radiusSum > side && radiusSum > 0) {
+            return Math.min(scale, side / radiusSum);
+        }
+        return scale;
+    }
+
+    /**
+     * 应用共享样式, 重复应用相同的样式时直接返回
+     *
+     * @param density 屏幕密度, 用于将 spec 中的 dp 换算为 px
+     */
+    public void applySpec(@NonNull JrvStyleSpec spec, float density) {
+        spec = spec.intern();
+        if (spec == mSpec && density == mSpecDensity) {
+            return;
+        }
+        int[] gradientColors = spec.getGradientColors();
+        if (gradientColors != null) {
+            setGradient(gradientColors);
+            setOrientation(orientationOf(spec.getGradientOrientation()));
+        } else {
+            mGradientColors = null;
+            setBgData(spec.hasBackground() ? spec.getBackgroundColorList() : null);
+        }
+        // 尺寸与 TypedArray.getDimensionPixelSize 一样取整, 与 xml 中相同的属性得到相同的背景
+        if (spec.getBorderWidth() > 0) {
+            setStrokeData(pixelSize(spec.getBorderWidth(), density), spec.getBorderColorList());
+        } else {
+            setStrokeData(0, null);
+        }
+        float[] cornerRadii = spec.getCornerRadii();
+        if (spec.isRadiusAdjustBounds()) {
+            setIsRadiusAdjustBounds(true);
+        } else if (cornerRadii != null) {
+            setRequestedRadii(pixelSize(cornerRadii[0], density), pixelSize(cornerRadii[1], density),
+                    pixelSize(cornerRadii[2], density), pixelSize(cornerRadii[3], density));
+        } else {
+            setRadius(pixelSize(spec.getRadius(), density));
+        }
+        mSpec = spec;
+        mSpecDensity = density;
+        mProfileSlot = -1;
+    }
+
+    /**
+     * 与 {@link android.util.TypedValue#complexToDimensionPixelSize} 一致: 四舍五入, 非 0 的尺寸至少 1px
+     */
+    static int pixelSize(float dp, float density) {
+        float px = dp * density;
+        int size = (int) (px >= 0 ? px + 0.5f : px - 0.5f);
+        if (size != 0 || dp == 0) {
+            return size;
+        }
+        return dp > 0 ? 1 : -1;
+    }
+
+    private void clearSpec() {
+        mSpec = null;
+        mProfileSlot = -1;
+    }
+
+    @Override
+    public void setCornerRadius(float radius) {
+        setRadius(radius);
+    }
+
+    /**
+     * 与 GradientDrawable 相同, 每个角为 (水平半径, 竖直半径), 支持椭圆圆角;
+     * 椭圆圆角不能由 {@link JrvStyleSpec} 表示, 也不参与子 View 背景合批与过度绘制优化
+     */
+    @Override
+    public void setCornerRadii(@Nullable float[] radii) {
+        clearSpec();
+        if (radii == null || radii.length < 8) {
+            setRequestedRadii(0, 0, 0, 0);
+            return;
+        }
+        setRequestedRadii(radii[0], radii[2], radii[4], radii[6]);
+        for (int i = 0; i < 4; i++) {
+            mCornerRadiiY[i] = radii[i * 2 + 1];
+            if (mCornerRadiiY[i] != mCornerRadii[i]) {
+                mEllipticalRadii = true;
+            }
+        }
+        if (mEllipticalRadii) {
+            invalidateRadii();
+        }
+    }
+
+    /**
+     * 设置是否只响应形状内的点击, 圆角外的透明区域不再响应点击
+     */
+    public void setShapeHitTest(boolean shapeHitTest) {
+        mShapeHitTest = shapeHitTest;
+    }
+
+    public boolean isShapeHitTest() {
+        return mShapeHitTest;
+    }
+
+    /**
+     * 设置按下时的水波纹颜色, Android 5.0 以上生效
+     */
+    public void setRippleColor(@Nullable ColorStateList rippleColor) {
+        mRippleColor = rippleColor;
+    }
+
+    @Nullable
+    public ColorStateList getRippleColor() {
+        return mRippleColor;
+    }
+
+    /**
+     * 按当前大小计算出的圆角, 顺序同 {@link #setCornerRadii(float[])}, 不要修改
+     */
+    float[] getResolvedRadii() {
+        return mResolvedRadii;
+    }
+
+    /**
+     * 判断点是否在背景的形状内, 直接按圆角与形状参数计算, 不创建 Path 或 Region
+     *
+     * @param x 相对 View 的坐标
+     * @param y 相对 View 的坐标
+     */
+    public boolean containsPoint(float x, float y) {
+        Rect bounds = getBounds();
+        if (x < bounds.left || x >= bounds.right || y < bounds.top || y >= bounds.bottom) {
+            return false;
+        }
+        if (mShape != null) {
+            return mShape.contains(x - bounds.left, y - bounds.top, bounds.width(), bounds.height(), mResolvedRadii);
+        }
+        return isInRoundRect(x, y, bounds.left, bounds.top, bounds.right, bounds.bottom, mResolvedRadii);
+    }
+
+    /**
+     * 判断点是否在圆角矩形内, 圆角不超过短边的一半
+     *
+     * @param radii 长度为 8, 顺序同 {@link #setCornerRadii(float[])}
+     */
+    static boolean isInRoundRect(float x, float y, float left, float top, float right, float bottom, float[] radii) {
+        if (x < left || x >= right || y < top || y >= bottom) {
+            return false;
+        }
+        float maxRadius = Math.min(right - left, bottom - top) / 2f;
+        float rx;
+        float ry;
+        if (x < (left + right) / 2) {
+            if (y < (top + bottom) / 2) {
+                //左上
+                rx = Math.min(radii[0], maxRadius);
+                ry = Math.min(radii[1], maxRadius);
+                return isInCorner(x - left, y - top, rx, ry);
+            }
+            //左下
+            rx = Math.min(radii[6], maxRadius);
+            ry = Math.min(radii[7], maxRadius);
+            return isInCorner(x - left, bottom - y, rx, ry);
+        }
+        if (y < (top + bottom) / 2) {
+            //右上
+            rx = Math.min(radii[2], maxRadius);
+            ry = Math.min(radii[3], maxRadius);
+            return isInCorner(right - x, y - top, rx, ry);
+        }
+        //右下
+        rx = Math.min(radii[4], maxRadius);
+        ry = Math.min(radii[5], maxRadius);
+        return isInCorner(right - x, bottom - y, rx, ry);
+    }
+
+    /**
+     * @param dx 到角所在竖边的距离
+     * @param dy 到角所在横边的距离
+     */
+    private static boolean isInCorner(float dx, float dy, float rx, float ry) {
+        if (dx >= rx || dy >= ry || rx <= 0 || ry <= 0) {
+            return true;
+        }
+        float nx = (rx - dx) / rx;
+        float ny = (ry - dy) / ry;
+        return nx * nx + ny * ny <= 1;
+    }
+
+    @Override
+    public void setOrientation(Orientation orientation) {
+        clearSpec();
+        mShapeShader = null;
+        super.setOrientation(orientation);
+    }
+
+    /**
+     * 设置参数化形状, null 为圆角矩形
+     */
+    void setShape(@Nullable JrvShape shape) {
+        clearSpec();
+        mShape = shape;
+        mProgressOutlineDirty = true;
+        invalidateSelf();
+    }
+
+    @Nullable
+    JrvShape getShape() {
+        return mShape;
+    }
+
+    /**
+     * 设置 Jrv 布局是否将子 View 裁剪为背景的形状
+     */
+    public void setClipToShape(boolean clipToShape) {
+        mClipToShape = clipToShape;
+        invalidateSelf();
+    }
+
+    public boolean isClipToShape() {
+        return mClipToShape;
+    }
+
+    /**
+     * 当前大小下的轮廓, 坐标相对 bounds 的左上角, 来自进程级的缓存, 不能修改
+     *
+     * @return 大小为空时返回 null
+     */
+    @Nullable
+    Path getShapePath() {
+        Rect bounds = getBounds();
+        if (bounds.isEmpty()) {
+            return null;
+        }
+        resolveRadii(bounds);
+        return JrvShape.obtainPath(mShape, bounds.width(), bounds.height(), mResolvedRadii, 0);
+    }
+
+    /**
+     * 参数化形状的阴影轮廓: 凸形状直接使用轮廓, 否则使用不含缺口与尖角的主体圆角矩形
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void getOutline(@NonNull Outline outline) {
+        if (mShape == null) {
+            super.getOutline(outline);
+            return;
+        }
+        Path path = getShapePath();
+        if (path == null) {
+            outline.setEmpty();
+            return;
+        }
+        Rect bounds = getBounds();
+        if (path.isConvex()) {
+            outline.setConvexPath(path);
+        } else {
+            RectF body = mOutlineRect;
+            body.set(0, 0, bounds.width(), bounds.height());
+            mShape.getBodyRect(body, body);
+            outline.setRoundRect(Math.round(body.left), Math.round(body.top), Math.round(body.right),
+                    Math.round(body.bottom), mResolvedRadii[0]);
+        }
+        outline.offset(bounds.left, bounds.top);
+        outline.setAlpha(getAlpha() / 255f);
+    }
+
+    @Override
+    public int getOpacity() {
+        return mShape != null ? PixelFormat.TRANSLUCENT : super.getOpacity();
+    }
+
+    @Nullable
+    public JrvStyleSpec getSpec() {
+        return mSpec;
+    }
+
+    /**
+     * 复制当前样式(包括图层)为一个新的 Drawable, 不复制 bounds、状态与回调
+     */
+    @NonNull
+    JrvDrawable copy() {
+        JrvDrawable copy = new JrvDrawable();
+        copy.mShapeHitTest = mShapeHitTest;
+        copy.mRippleColor = mRippleColor;
+        copy.mTintMode = mTintMode;
+        copy.mTint = mTint;
+        copy.mUserColorFilter = mUserColorFilter;
+        copy.mShape = mShape;
+        copy.mClipToShape = mClipToShape;
+        if (mGradientColors != null && mGradientColors.length > 0) {
+            copy.setGradient(mGradientColors);
+            copy.setOrientation(getOrientation());
+        } else {
+            copy.setBgData(mBgColors);
+        }
+        copy.setStrokeData(mStrokeWidth, mBorderColors);
+        copy.mRadiusAdjustBounds = mRadiusAdjustBounds;
+        copy.mRadiusClamp = mRadiusClamp;
+        System.arraycopy(mCornerRadii, 0, copy.mCornerRadii, 0, mCornerRadii.length);
+        System.arraycopy(mCornerRadiiY, 0, copy.mCornerRadiiY, 0, mCornerRadiiY.length);
+        copy.mEllipticalRadii = mEllipticalRadii;
+        System.arraycopy(mCornerRadiusPercents, 0, copy.mCornerRadiusPercents, 0, mCornerRadiusPercents.length);
+        copy.invalidateRadii();
+        if (mProgressColors != null) {
+            copy.setBorderProgressStyle(mProgressColors, mProgressWidth, mProgressStart);
+            copy.setBorderProgress(mProgress);
+        }
+        if (mLayers != null) {
+            for (Layer layer : mLayers) {
+                copy.addLayer(layer.drawable.copy(), layer.insetLeft, layer.insetTop, layer.insetRight, layer.insetBottom);
+            }
+        }
+        copy.mSpec = mSpec;
+        copy.mSpecDensity = mSpecDensity;
+        return copy;
+    }
+
+    public static JrvDrawable fromSpec(@NonNull JrvStyleSpec spec, float density) {
+        JrvDrawable bg = new JrvDrawable();
+        bg.applySpec(spec, density);
+        return bg;
+    }
+
+    @Override
+    protected boolean onStateChange(int[] stateSet) {
+        boolean profiling = JrvProfiler.isEnabled();
+        long start = profiling ? System.nanoTime() : 0;
+        boolean superRet = super.onStateChange(stateSet);
+        if (mFillColors != null && !mFillSkipped) {
+            int color = mFillColors.getColorForState(stateSet, 0);
+            setColor(color);
+            mRebuildCount++;
+            superRet = true;
+        }
+        if (mStrokeColors != null) {
+            int color = mStrokeColors.getColorForState(stateSet, 0);
+            setStroke(mStrokeWidth, color);
+            mRebuildCount++;
+            superRet = true;
+        }
+        superRet |= updateFilter(stateSet);
+        if (mProgress > 0 && mProgressColors != null && mProgressColors.isStateful()) {
+            superRet = true;
+        }
+        if (mLayers != null) {
+            for (int i = 0; i < mLayers.size(); i++) {
+                superRet |= mLayers.get(i).drawable.setState(stateSet);
+            }
+        }
+        if (profiling) {
+            JrvProfiler.record(this, JrvProfiler.Operation.STATE_CHANGE, start);
+        }
+        return superRet;
+    }
+
+    @Override
+    public boolean isStateful() {
+        return (mFillColors != null && mFillColors.isStateful())
+                || (mStrokeColors != null && mStrokeColors.isStateful())
+                || (mGradientColors != null && mGradientColors.length > 0)
+                || (mTint != null && mTint.isStateful())
+                || (mStateFilterColors != null && mStateFilterColors.isStateful())
+                || (mProgressColors != null && mProgressColors.isStateful())
+                || isLayersStateful()
+                || super.isStateful();
+    }
+
+    @Override
+    protected void onBoundsChange(Rect r) {
+        boolean profiling = JrvProfiler.isEnabled();
+        long start = profiling ? System.nanoTime() : 0;
+        super.onBoundsChange(r);
+        resolveRadii(r);
+        if (mLayers != null) {
+            for (int i = 0; i < mLayers.size(); i++) {
+                setLayerBounds(mLayers.get(i), r);
+            }
+        }
+        if (profiling) {
+            JrvProfiler.record(this, JrvProfiler.Operation.BOUNDS_CHANGE, start);
+        }
+    }
+
+    private boolean isLayersStateful() {
+        if (mLayers != null) {
+            for (int i = 0; i < mLayers.size(); i++) {
+                if (mLayers.get(i).drawable.isStateful()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (mBatchedBy != null) {
+            return;
+        }
+        boolean profiling = JrvProfiler.isEnabled();
+        long start = profiling ? System.nanoTime() : 0;
+        if (mFillSkipped) {
+            JrvOverdraw.onFillSkipped(getBounds());
+        }
+        if (mShape != null) {
+            drawShape(canvas);
+        } else {
+            super.draw(canvas);
+        }
+        drawBorderProgress(canvas);
+        if (mLayers != null) {
+            for (int i = 0; i < mLayers.size(); i++) {
+                mLayers.get(i).drawable.draw(canvas);
+            }
+        }
+        if (profiling) {
+            JrvProfiler.record(this, JrvProfiler.Operation.DRAW, start);
+        }
+    }
+
+    /**
+     * 绘制参数化形状, 与 GradientDrawable 相同, 填充与描边都使用内缩半个描边宽度的轮廓
+     */
+    private void drawShape(Canvas canvas) {
+        Rect bounds = getBounds();
+        int width = bounds.width();
+        int height = bounds.height();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (mShapePaint == null) {
+            mShapePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        }
+        Paint paint = mShapePaint;
+        Path path = JrvShape.obtainPath(mShape, width, height, mResolvedRadii, mStrokeWidth * 0.5f);
+        // 状态颜色直接按状态取色, 只保留着色与 App 设置的滤镜
+        paint.setColorFilter(mTint != null || mUserColorFilter != null ? mAppliedFilter : null);
+        int[] state = getState();
+        int saveCount = canvas.save();
+        canvas.translate(bounds.left, bounds.top);
+        if (mGradientColors != null && mGradientColors.length > 0) {
+            paint.setStyle(Paint.Style.FILL);
+            paint.setShader(obtainShapeShader(width, height));
+            paint.setColor(Color.BLACK);
+            paint.setAlpha(getAlpha());
+            canvas.drawPath(path, paint);
+            paint.setShader(null);
+        } else if (mFillAnimations > 0) {
+            paint.setStyle(Paint.Style.FILL);
+            paint.setColor(modulateAlpha(mAnimatedFillColor));
+            canvas.drawPath(path, paint);
+        } else if (mBgColors != null && !mFillSkipped) {
+            paint.setStyle(Paint.Style.FILL);
+            paint.setColor(modulateAlpha(mBgColors.getColorForState(state, mBgColors.getDefaultColor())));
+            canvas.drawPath(path, paint);
+        }
+        if (mStrokeWidth > 0 && mBorderColors != null) {
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(mStrokeWidth);
+            paint.setColor(modulateAlpha(mBorderColors.getColorForState(state, mBorderColors.getDefaultColor())));
+            canvas.drawPath(path, paint);
+        }
+        canvas.restoreToCount(saveCount);
+    }
 
     /**
-     * 设置按钮的背景色(只支持纯色,不支持 Bitmap 或 Drawable)
+     * 设置沿边框绘制的进度, 轮廓已测量时只截取一次轮廓并刷新, 不分配内存, 可以在动画的每一帧调用
+     *
+     * @param progress 0~1, 小于 0 时不绘制进度
      */
-    public void setBgData(@Nullable ColorStateList colors) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            setColor(colors);
+    public void setBorderProgress(float progress) {
+        progress = progress < 0 ? -1 : Math.min(progress, 1);
+        if (progress == mProgress) {
+            return;
+        }
+        if ((progress < 0) != (mProgress < 0)) {
+            clearSpec();
+        }
+        mProgress = progress;
+        if (!mProgressOutlineDirty && mProgressSegment != null) {
+            updateProgressSegment();
+        }
+        invalidateSelf();
+    }
+
+    public float getBorderProgress() {
+        return mProgress;
+    }
+
+    /**
+     * 设置进度边框的颜色、宽度与开始的圆角, 进度从圆角的中点开始顺时针绘制
+     *
+     * @param colors 为 null 时不绘制进度
+     * @param width 单位是px, 与描边一样绘制在内缩半个宽度的轮廓上
+     * @param startCorner {@link #PROGRESS_START_TOP_LEFT} 等
+     */
+    void setBorderProgressStyle(@Nullable ColorStateList colors, int width, int startCorner) {
+        clearSpec();
+        mProgressColors = colors;
+        if (mProgressWidth != width || mProgressStart != startCorner) {
+            mProgressWidth = width;
+            mProgressStart = startCorner;
+            mProgressOutlineDirty = true;
+        }
+        if (colors != null && mProgressPaint == null) {
+            mProgressPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mProgressPaint.setStyle(Paint.Style.STROKE);
+            mProgressMeasure = new PathMeasure();
+            mProgressOutline = new Path();
+            mProgressSegment = new Path();
+            mProgressOval = new RectF();
+        }
+        invalidateSelf();
+    }
+
+    private void drawBorderProgress(Canvas canvas) {
+        Rect bounds = getBounds();
+        if (mProgress <= 0 || mProgressColors == null || mProgressWidth <= 0 || bounds.isEmpty()) {
+            return;
+        }
+        if (mProgressOutlineDirty) {
+            buildProgressOutline(bounds.width(), bounds.height());
+            updateProgressSegment();
+        }
+        Paint paint = mProgressPaint;
+        paint.setStrokeWidth(mProgressWidth);
+        paint.setColor(modulateAlpha(mProgressColors.getColorForState(getState(), mProgressColors.getDefaultColor())));
+        paint.setColorFilter(mTint != null || mUserColorFilter != null ? mAppliedFilter : null);
+        int saveCount = canvas.save();
+        canvas.translate(bounds.left, bounds.top);
+        canvas.drawPath(mProgressSegment, paint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private void updateProgressSegment() {
+        mProgressSegment.rewind();
+        if (mProgress > 0) {
+            mProgressMeasure.getSegment(0, mProgressLength * mProgress, mProgressSegment, true);
+            if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.KITKAT) {
+                // 4.4 及以下截取的 Path 在硬件加速时可能不显示
+                mProgressSegment.rLineTo(0, 0);
+            }
+        }
+    }
+
+    /**
+     * 按当前大小与圆角生成并测量进度轮廓, 只在大小、圆角、进度宽度、起点或形状变化后调用
+     */
+    private void buildProgressOutline(int width, int height) {
+        mProgressOutlineDirty = false;
+        mRebuildCount++;
+        float inset = mProgressWidth * 0.5f;
+        Path outline = mProgressOutline;
+        outline.rewind();
+        if (mShape != null) {
+            // 参数化形状沿缓存的轮廓绘制, 起点为轮廓自身的起点
+            outline.set(JrvShape.obtainPath(mShape, width, height, mResolvedRadii, inset));
+            mProgressMeasure.setPath(outline, true);
         } else {
-            mFillColors = colors;
-            final int currentColor;
-            if (colors == null) {
-                currentColor = Color.TRANSPARENT;
+            addProgressRoundRect(outline, inset, inset, width - inset, height - inset);
+            mProgressMeasure.setPath(outline, false);
+        }
+        mProgressLength = mProgressMeasure.getLength();
+    }
+
+    /**
+     * 从起始圆角的中点开始顺时针添加圆角矩形, 最后回到起点
+     */
+    private void addProgressRoundRect(Path path, float left, float top, float right, float bottom) {
+        float maxRadius = Math.max(0, Math.min(right - left, bottom - top) / 2);
+        RectF oval = mProgressOval;
+        for (int i = 0; i <= 4; i++) {
+            int corner = (mProgressStart + i) % 4;
+            float rx = Math.min(mResolvedRadii[corner * 2], maxRadius);
+            float ry = Math.min(mResolvedRadii[corner * 2 + 1], maxRadius);
+            boolean isLeft = corner == PROGRESS_START_TOP_LEFT || corner == PROGRESS_START_BOTTOM_LEFT;
+            boolean isTop = corner == PROGRESS_START_TOP_LEFT || corner == PROGRESS_START_TOP_RIGHT;
+            if (rx <= 0 || ry <= 0) {
+                float x = isLeft ? left : right;
+                float y = isTop ? top : bottom;
+                if (i == 0) {
+                    path.moveTo(x, y);
+                } else {
+                    path.lineTo(x, y);
+                }
+                continue;
+            }
+            float ovalLeft = isLeft ? left : right - rx * 2;
+            float ovalTop = isTop ? top : bottom - ry * 2;
+            oval.set(ovalLeft, ovalTop, ovalLeft + rx * 2, ovalTop + ry * 2);
+            // 左上角的圆弧从 180 度开始, 依次顺时针加 90 度
+            float startAngle = 180 + 90 * corner;
+            if (i == 0) {
+                path.arcTo(oval, startAngle + 45, 45, true);
+            } else if (i == 4) {
+                path.arcTo(oval, startAngle, 45, false);
             } else {
-                currentColor = colors.getColorForState(getState(), 0);
+                path.arcTo(oval, startAngle, 90, false);
             }
-            setColor(currentColor);
         }
     }
 
-    public void setGradient(List<ColorStateList> list) {
-        if (list != null && list.size() > 0) {
-            int[] colors = new int[list.size()];
-            for (int i = 0; i < list.size(); i++) {
-                ColorStateList color = list.get(i);
-                colors[i] = color.getColorForState(getState(), 0);
+    private int modulateAlpha(int color) {
+        int alpha = Color.alpha(color) * getAlpha() / 255;
+        return (color & 0x00FFFFFF) | (alpha << 24);
+    }
+
+    private Shader obtainShapeShader(int width, int height) {
+        if (mShapeShader == null || mShaderWidth != width || mShaderHeight != height) {
+            float x0 = 0;
+            float y0 = 0;
+            float x1 = 0;
+            float y1 = 0;
+            switch (getOrientation()) {
+                case TR_BL:
+                    x0 = width;
+                    y1 = height;
+                    break;
+                case RIGHT_LEFT:
+                    x0 = width;
+                    break;
+                case BR_TL:
+                    x0 = width;
+                    y0 = height;
+                    break;
+                case BOTTOM_TOP:
+                    y0 = height;
+                    break;
+                case BL_TR:
+                    y0 = height;
+                    x1 = width;
+                    break;
+                case LEFT_RIGHT:
+                    x1 = width;
+                    break;
+                case TL_BR:
+                    x1 = width;
+                    y1 = height;
+                    break;
+                default:
+                    y1 = height;
+                    break;
             }
-            setGradient(colors);
+            mShapeShader = new LinearGradient(x0, y0, x1, y1, mGradientColors, null, Shader.TileMode.CLAMP);
+            mShaderWidth = width;
+            mShaderHeight = height;
         }
+        return mShapeShader;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        super.setAlpha(alpha);
+        if (mLayers != null) {
+            for (int i = 0; i < mLayers.size(); i++) {
+                mLayers.get(i).drawable.setAlpha(alpha);
+            }
+        }
+        JrvOverdraw.onAppearanceChanged(this);
     }
 
     /**
-     * 设置渐变色
+     * 颜色动画开始, 动画期间不跳过填充也不覆盖子 View, 只在开始时通知 {@link JrvOverdraw}
      */
-    public void setGradient(@ColorInt int[] colors) {
-        mGradientColors = colors;
-        if (colors != null && colors.length > 0) {
-            setColors(colors);
+    void startFillAnimation() {
+        if (mFillAnimations++ == 0) {
+            clearSpec();
+            setFillSkipped(false);
+            mAnimatedFillColor = mBgColors == null ? Color.TRANSPARENT
+                    : mBgColors.getColorForState(getState(), mBgColors.getDefaultColor());
+            updateStateFilterMode();
+            JrvOverdraw.onAppearanceChanged(this);
         }
     }
 
     /**
-     * 设置按钮的描边粗细和颜色
+     * 动画的每一帧调用, 不分配颜色列表也不通知 {@link JrvOverdraw}
      */
-    public void setStrokeData(int width, @Nullable ColorStateList colors) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            super.setStroke(width, colors);
-        } else {
-            mStrokeWidth = width;
-            mStrokeColors = colors;
-            final int currentColor;
-            if (colors == null) {
-                currentColor = Color.TRANSPARENT;
-            } else {
-                currentColor = colors.getColorForState(getState(), 0);
+    void setAnimatedFillColor(@ColorInt int color) {
+        mAnimatedFillColor = color;
+        // 4.4 按状态取色时会覆盖动画的颜色
+        mFillColors = null;
+        super.setColor(color);
+    }
+
+    /**
+     * 颜色动画结束或取消, 最后一个动画结束时以当前颜色设置背景
+     */
+    void endFillAnimation() {
+        if (mFillAnimations > 0 && --mFillAnimations == 0) {
+            setBgData(ColorStateList.valueOf(mAnimatedFillColor));
+        }
+    }
+
+    /**
+     * 纯色、无状态、没有叠加图层时返回填充色, 否则返回透明; 颜色动画期间返回透明
+     */
+    @ColorInt
+    int getSolidFillColor() {
+        if (mFillAnimations > 0 || mGradientColors != null || mBgColors == null || mBgColors.isStateful() || getLayerCount() > 0
+                || mShape != null) {
+            return Color.TRANSPARENT;
+        }
+        return mBgColors.getDefaultColor();
+    }
+
+    /**
+     * 描边宽度, 单位是px
+     */
+    int getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    /**
+     * 设置是否跳过填充, 只绘制描边与图层, 由 {@link JrvOverdraw} 调用
+     */
+    void setFillSkipped(boolean fillSkipped) {
+        if (mFillSkipped == fillSkipped) {
+            return;
+        }
+        mFillSkipped = fillSkipped;
+        if (fillSkipped) {
+            super.setColor(Color.TRANSPARENT);
+        } else if (mGradientColors == null) {
+            applyBgColors(mBgColors);
+        }
+        updateStateFilterMode();
+        JrvOverdraw.onFillSkippedChanged(this, fillSkipped);
+    }
+
+    boolean isFillSkipped() {
+        return mFillSkipped;
+    }
+
+    /**
+     * 样式变化时父 View 中合批绘制的背景也需要重新绘制
+     */
+    @Override
+    public void invalidateSelf() {
+        super.invalidateSelf();
+        if (mBatchedBy != null) {
+            mBatchedBy.invalidate();
+        }
+    }
+
+    /**
+     * 纯色或只有描边、无状态、无图层、无透明度与滤镜时可以由父 View 合批绘制, 四个圆角是否相同由父 View 按大小判断
+     */
+    boolean isBatchable() {
+        return mBatchSuppressCount == 0 && mShape == null && mRippleColor == null && mTint == null && mUserColorFilter == null
+                && mGradientColors == null && getLayerCount() == 0 && !isStateful() && getAlpha() == 0xFF
+                && mProgressColors == null;
+    }
+
+    /**
+     * 设置合批绘制该背景的父 View, null 表示自己绘制
+     */
+    void setBatchedBy(@Nullable View parent) {
+        if (mBatchedBy != parent) {
+            View previous = mBatchedBy;
+            mBatchedBy = parent;
+            // 重新录制 View 的背景, 原来合批绘制的父 View 也需要重新录制
+            super.invalidateSelf();
+            if (previous != null) {
+                previous.invalidate();
             }
-            setStroke(width, currentColor);
         }
     }
 
     /**
-     * 设置圆角大小是否自动适应为 View 的高度的一半
+     * 暂时禁止合批并立即恢复自己绘制, 与 suppressed 为 false 的调用成对使用
      */
-    public void setIsRadiusAdjustBounds(boolean isRadiusAdjustBounds) {
-        mRadiusAdjustBounds = isRadiusAdjustBounds;
-        if (mRadiusAdjustBounds) {
-            // 不知道为什么调用 invalidateSelf 无效，不触发onBoundsChange，只能手动调用
-            onBoundsChange(getBounds());
-        } else {
-            setRadius(0);
+    void setBatchSuppressed(boolean suppressed) {
+        mBatchSuppressCount = Math.max(0, mBatchSuppressCount + (suppressed ? 1 : -1));
+        if (suppressed) {
+            setBatchedBy(null);
         }
     }
 
+    @Nullable
+    View getBatchedBy() {
+        return mBatchedBy;
+    }
+
     /**
-     * 设置统一圆角
+     * 合批绘制时的填充色, 被跳过填充时为透明
      */
-    public void setRadius(float radius) {
-        if (radius >= 0) {
-            mRadiusAdjustBounds = false;
-            setCornerRadius(radius);
+    @ColorInt
+    int getBatchFillColor() {
+        return mFillSkipped || mBgColors == null ? Color.TRANSPARENT : mBgColors.getDefaultColor();
+    }
+
+    @ColorInt
+    int getBatchStrokeColor() {
+        return mStrokeWidth <= 0 || mBorderColors == null ? Color.TRANSPARENT : mBorderColors.getDefaultColor();
+    }
+
+    void setOrigin(int origin) {
+        mOrigin = origin;
+    }
+
+    /**
+     * @return {@link #ORIGIN_CODE} 等
+     */
+    int getOrigin() {
+        return mOrigin;
+    }
+
+    /**
+     * @return 按大小重新计算圆角、状态变化时重新设置填充或描边的次数
+     */
+    int getRebuildCount() {
+        return mRebuildCount;
+    }
+
+    int getProfileSlot() {
+        if (mProfileSlot < 0) {
+            mProfileSlot = JrvProfiler.slotOf(getStyleKey());
         }
+        return mProfileSlot;
     }
 
     /**
-     * 分别设置各个圆角
+     * 转换为等价的 {@link JrvStyleSpec}, 尺寸按 density 换算为 dp
+     *
+     * @return 使用了 spec 不能表示的属性(状态颜色、图层、百分比圆角、形状、水波纹、着色等)时返回 null
      */
-    public void setRadius(float radiusTopLeft, float radiusTopRight, float radiusBottomLeft, float radiusBottomRight) {
-        if (radiusTopLeft > 0 || radiusTopRight > 0 || radiusBottomLeft > 0 || radiusBottomRight > 0) {
-            float[] radii = new float[]{
-                    radiusTopLeft, radiusTopLeft,
-                    radiusTopRight, radiusTopRight,
-                    radiusBottomLeft, radiusBottomLeft,
-                    radiusBottomRight, radiusBottomRight
-            };
-            mRadiusAdjustBounds = false;
-            setCornerRadii(radii);
+    @Nullable
+    JrvStyleSpec toSpec(float density) {
+        if (mSpec != null && mSpecDensity == density) {
+            return mSpec;
+        }
+        if (mRippleColor != null || mShapeHitTest || mShape != null || mClipToShape || getLayerCount() > 0
+                || mProgressColors != null
+                || mTint != null || mUserColorFilter != null || !mRadiusClamp || mEllipticalRadii
+                || (mBgColors != null && mBgColors.isStateful()) || (mBorderColors != null && mBorderColors.isStateful())
+                || mCornerRadiusPercents[0] >= 0 || mCornerRadiusPercents[1] >= 0
+                || mCornerRadiusPercents[2] >= 0 || mCornerRadiusPercents[3] >= 0) {
+            return null;
+        }
+        JrvStyleSpec.Builder builder = new JrvStyleSpec.Builder();
+        if (mGradientColors != null && mGradientColors.length > 0) {
+            builder.gradient(mGradientColors).gradientOrientation(orientationCodeOf(getOrientation()));
+        } else if (mBgColors != null) {
+            builder.backgroundColor(mBgColors.getDefaultColor());
+        }
+        if (mStrokeWidth > 0) {
+            builder.border(mStrokeWidth / density, mBorderColors == null ? Color.TRANSPARENT : mBorderColors.getDefaultColor());
         }
+        if (mRadiusAdjustBounds) {
+            builder.radiusAdjustBounds(true);
+        } else {
+            builder.radii(mCornerRadii[0] / density, mCornerRadii[1] / density,
+                    mCornerRadii[2] / density, mCornerRadii[3] / density);
+        }
+        return builder.build().intern();
     }
 
-    @Override
-    protected boolean onStateChange(int[] stateSet) {
-        Log.e("JRV", "onStateChange");
-        boolean superRet = super.onStateChange(stateSet);
-        if (mFillColors != null) {
-            int color = mFillColors.getColorForState(stateSet, 0);
-            setColor(color);
-            superRet = true;
+    /**
+     * 描述当前样式的 {@link JrvStyleSpec} 文本, 尺寸按系统屏幕密度换算为 dp;
+     * 百分比圆角与图层数量以 spec 不识别的 rp、layers 追加在末尾
+     */
+    @NonNull
+    String getStyleKey() {
+        if (mSpec != null) {
+            return mSpec.encode();
         }
-        if (mStrokeColors != null) {
-            int color = mStrokeColors.getColorForState(stateSet, 0);
-            setStroke(mStrokeWidth, color);
-            superRet = true;
+        float density = Resources.getSystem().getDisplayMetrics().density;
+        JrvStyleSpec.Builder builder = new JrvStyleSpec.Builder();
+        if (mGradientColors != null && mGradientColors.length > 0) {
+            builder.gradient(mGradientColors).gradientOrientation(orientationCodeOf(getOrientation()));
+        } else if (mBgColors != null) {
+            builder.backgroundColor(mBgColors.getDefaultColor());
         }
-        return superRet;
+        if (mStrokeWidth > 0) {
+            // 描边颜色不影响耗时, 不区分
+            builder.border(mStrokeWidth / density, Color.TRANSPARENT);
+        }
+        if (mRadiusAdjustBounds) {
+            builder.radiusAdjustBounds(true);
+        } else {
+            builder.radii(mCornerRadii[0] / density, mCornerRadii[1] / density,
+                    mCornerRadii[2] / density, mCornerRadii[3] / density);
+        }
+        StringBuilder key = new StringBuilder(builder.build().encode());
+        if (mCornerRadiusPercents[0] >= 0 || mCornerRadiusPercents[1] >= 0
+                || mCornerRadiusPercents[2] >= 0 || mCornerRadiusPercents[3] >= 0) {
+            key.append(";rp:").append(mCornerRadiusPercents[0]).append(',').append(mCornerRadiusPercents[1])
+                    .append(',').append(mCornerRadiusPercents[2]).append(',').append(mCornerRadiusPercents[3]);
+        }
+        if (getLayerCount() > 0) {
+            key.append(";layers:").append(getLayerCount());
+        }
+        if (mEllipticalRadii) {
+            key.append(";elliptical");
+        }
+        if (mShape != null) {
+            key.append(";shape:").append(mShape.type);
+        }
+        if (mProgressColors != null) {
+            key.append(";progress:").append(mProgressStart);
+        }
+        return key.toString();
     }
 
     @Override
-    public boolean isStateful() {
-        boolean result = (mFillColors != null && mFillColors.isStateful())
-                || (mStrokeColors != null && mStrokeColors.isStateful())
-                || (mGradientColors != null && mGradientColors.length > 0)
-                || super.isStateful();
-        Log.e("JRV", "isStateful  " + result);
-        return result;
+    public void invalidateDrawable(@NonNull Drawable who) {
+        invalidateSelf();
     }
 
     @Override
-    protected void onBoundsChange(Rect r) {
-        Log.e("JRV", "onBoundsChange");
-        super.onBoundsChange(r);
-        if (mRadiusAdjustBounds) {
-            // 修改圆角为短边的一半
-            setCornerRadius(Math.min(r.width(), r.height()) / 2);
-        }
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        scheduleSelf(what, when);
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        unscheduleSelf(what);
     }
 
     public static JrvDrawable fromAttributeSet(Context context, AttributeSet attrs, int defStyleAttr) {
         TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.JrvTextView, defStyleAttr, 0);
+        JrvDrawable bg = fromTypedArray(context, typedArray);
+        typedArray.recycle();
+        return bg;
+    }
+
+    /**
+     * 从 {@link R.styleable#JrvTextView} 属性创建, 不会回收 typedArray
+     */
+    static JrvDrawable fromTypedArray(Context context, TypedArray typedArray) {
+        JrvDrawable bg = createFromTypedArray(typedArray);
+        //叠加的图层
+        int layersRes = typedArray.getResourceId(R.styleable.JrvTextView_jrv_layers, 0);
+        if (layersRes != 0) {
+            TypedArray layers = context.getResources().obtainTypedArray(layersRes);
+            for (int i = 0; i < layers.length(); i++) {
+                int layerStyle = layers.getResourceId(i, 0);
+                if (layerStyle != 0) {
+                    bg.addLayer(context, layerStyle);
+                }
+            }
+            layers.recycle();
+        }
+        return bg;
+    }
+
+    /**
+     * 从 style 资源中解析一个图层, 叠加绘制在当前形状之上
+     *
+     * @param layerStyle 包含 jrv_* 属性的 style 资源, 可用 jrv_layerInset 等属性指定图层相对本 Drawable 的内缩距离
+     */
+    public void addLayer(Context context, @StyleRes int layerStyle) {
+        TypedArray typedArray = context.obtainStyledAttributes(layerStyle, R.styleable.JrvTextView);
+        JrvDrawable layer = createFromTypedArray(typedArray);
+        int inset = typedArray.getDimensionPixelSize(R.styleable.JrvTextView_jrv_layerInset, 0);
+        int insetLeft = typedArray.getDimensionPixelSize(R.styleable.JrvTextView_jrv_layerInsetLeft, inset);
+        int insetTop = typedArray.getDimensionPixelSize(R.styleable.JrvTextView_jrv_layerInsetTop, inset);
+        int insetRight = typedArray.getDimensionPixelSize(R.styleable.JrvTextView_jrv_layerInsetRight, inset);
+        int insetBottom = typedArray.getDimensionPixelSize(R.styleable.JrvTextView_jrv_layerInsetBottom, inset);
+        typedArray.recycle();
+        addLayer(layer, insetLeft, insetTop, insetRight, insetBottom);
+    }
+
+    /**
+     * 叠加一个图层, 图层按添加顺序依次绘制在当前形状之上, 与当前形状在同一次 draw 中完成绘制
+     *
+     * @param layer 图层, 一个 layer 只能属于一个 JrvDrawable
+     * @param insetLeft 图层左边相对本 Drawable 的内缩距离, 单位是px, 可以为负数(向外扩展, 需要 View 有足够的空间)
+     */
+    public void addLayer(JrvDrawable layer, int insetLeft, int insetTop, int insetRight, int insetBottom) {
+        if (mLayers == null) {
+            mLayers = new ArrayList<>(2);
+        }
+        mLayers.add(new Layer(layer, insetLeft, insetTop, insetRight, insetBottom));
+        layer.setCallback(this);
+        layer.setState(getState());
+        if (mTint != null) {
+            layer.setTintList(mTint);
+            layer.setTintMode(mTintMode);
+        }
+        if (mUserColorFilter != null) {
+            layer.setColorFilter(mUserColorFilter);
+        }
+        setLayerBounds(mLayers.get(mLayers.size() - 1), getBounds());
+        invalidateSelf();
+    }
+
+    /**
+     * 移除所有叠加的图层
+     */
+    public void clearLayers() {
+        if (mLayers != null && mLayers.size() > 0) {
+            for (Layer layer : mLayers) {
+                layer.drawable.setCallback(null);
+            }
+            mLayers.clear();
+            invalidateSelf();
+        }
+    }
+
+    public int getLayerCount() {
+        return mLayers == null ? 0 : mLayers.size();
+    }
+
+    private static void setLayerBounds(Layer layer, Rect bounds) {
+        layer.drawable.setBounds(bounds.left + layer.insetLeft, bounds.top + layer.insetTop,
+                bounds.right - layer.insetRight, bounds.bottom - layer.insetBottom);
+    }
+
+    /**
+     * 渐变方向, 取值同 jrv_gradientOrientation 与 {@link JrvStyleSpec#ORIENTATION_TOP_BOTTOM} 等
+     */
+    static Orientation orientationOf(int orientationCode) {
+        switch (orientationCode) {
+            case 1:
+                return Orientation.TR_BL;
+            case 2:
+                return Orientation.RIGHT_LEFT;
+            case 3:
+                return Orientation.BR_TL;
+            case 4:
+                return Orientation.BOTTOM_TOP;
+            case 5:
+                return Orientation.BL_TR;
+            case 6:
+                return Orientation.LEFT_RIGHT;
+            case 7:
+                return Orientation.TL_BR;
+            default:
+                return Orientation.TOP_BOTTOM;
+        }
+    }
+
+    static int orientationCodeOf(Orientation orientation) {
+        switch (orientation) {
+            case TR_BL:
+                return 1;
+            case RIGHT_LEFT:
+                return 2;
+            case BR_TL:
+                return 3;
+            case BOTTOM_TOP:
+                return 4;
+            case BL_TR:
+                return 5;
+            case LEFT_RIGHT:
+                return 6;
+            case TL_BR:
+                return 7;
+            default:
+                return 0;
+        }
+    }
+
+    private static JrvDrawable createFromTypedArray(TypedArray typedArray) {
         //背景色
         ColorStateList colorBg = typedArray.getColorStateList(R.styleable.JrvTextView_jrv_backgroundColor);
         //渐变起始色
@@ -199,7 +1676,27 @@ class JrvDrawable extends GradientDrawable {
         int mRadiusBottomLeft = typedArray.getDimensionPixelSize(R.styleable.JrvTextView_jrv_radiusBottomLeft, 0);
         //右下圆角
         int mRadiusBottomRight = typedArray.getDimensionPixelSize(R.styleable.JrvTextView_jrv_radiusBottomRight, 0);
-        typedArray.recycle();
+        //圆角占短边的比例
+        float radiusPercent = typedArray.getFraction(R.styleable.JrvTextView_jrv_radiusPercent, 1, 1, -1);
+        float radiusTopLeftPercent = typedArray.getFraction(R.styleable.JrvTextView_jrv_radiusTopLeftPercent, 1, 1, radiusPercent);
+        float radiusTopRightPercent = typedArray.getFraction(R.styleable.JrvTextView_jrv_radiusTopRightPercent, 1, 1, radiusPercent);
+        float radiusBottomRightPercent = typedArray.getFraction(R.styleable.JrvTextView_jrv_radiusBottomRightPercent, 1, 1, radiusPercent);
+        float radiusBottomLeftPercent = typedArray.getFraction(R.styleable.JrvTextView_jrv_radiusBottomLeftPercent, 1, 1, radiusPercent);
+        //圆角之和超过边长时是否等比缩小
+        boolean radiusClamp = typedArray.getBoolean(R.styleable.JrvTextView_jrv_radiusClamp, true);
+        //只响应形状内的点击
+        boolean shapeHitTest = typedArray.getBoolean(R.styleable.JrvTextView_jrv_shapeHitTest, false);
+        //水波纹颜色
+        ColorStateList rippleColor = typedArray.getColorStateList(R.styleable.JrvTextView_jrv_rippleColor);
+        //参数化形状
+        JrvShape shape = JrvShape.fromTypedArray(typedArray);
+        //子 View 裁剪为背景形状
+        boolean clipToShape = typedArray.getBoolean(R.styleable.JrvTextView_jrv_clipToShape, false);
+        //进度边框
+        ColorStateList borderProgressColor = typedArray.getColorStateList(R.styleable.JrvTextView_jrv_borderProgressColor);
+        float borderProgress = typedArray.getFloat(R.styleable.JrvTextView_jrv_borderProgress, 0);
+        int borderProgressWidth = typedArray.getDimensionPixelSize(R.styleable.JrvTextView_jrv_borderProgressWidth, borderWidth);
+        int borderProgressStart = typedArray.getInt(R.styleable.JrvTextView_jrv_borderProgressStart, PROGRESS_START_TOP_LEFT);
 
         List<ColorStateList> gradientColors = new ArrayList<>();
         if (gradientColorStart != null) {
@@ -213,59 +1710,59 @@ class JrvDrawable extends GradientDrawable {
         }
 
         JrvDrawable bg = new JrvDrawable();
+        bg.setShapeHitTest(shapeHitTest);
+        bg.setRippleColor(rippleColor);
+        bg.setShape(shape);
+        bg.setClipToShape(clipToShape);
         //背景色
         if (gradientColors.size() > 0) {//优先判断渐变
-            Orientation orientation;
-            switch (orientationCode) {
-                case 1:
-                    orientation = Orientation.TR_BL;
-                    break;
-                case 2:
-                    orientation = Orientation.RIGHT_LEFT;
-                    break;
-                case 3:
-                    orientation = Orientation.BR_TL;
-                    break;
-                case 4:
-                    orientation = Orientation.BOTTOM_TOP;
-                    break;
-                case 5:
-                    orientation = Orientation.BL_TR;
-                    break;
-                case 6:
-                    orientation = Orientation.LEFT_RIGHT;
-                    break;
-                case 7:
-                    orientation = Orientation.TL_BR;
-                    break;
-                default:
-                    orientation = Orientation.TOP_BOTTOM;
-                    break;
-            }
             bg.setGradient(gradientColors);
-            bg.setOrientation(orientation);
+            bg.setOrientation(orientationOf(orientationCode));
         } else {
             bg.setBgData(colorBg);
         }
         //边框
         bg.setStrokeData(borderWidth, colorBorder);
+        if (borderProgressColor != null) {
+            bg.setBorderProgressStyle(borderProgressColor, borderProgressWidth, borderProgressStart);
+            bg.setBorderProgress(borderProgress);
+        }
         //圆角
+        bg.setRadiusClamp(radiusClamp);
         if (mRadiusTopLeft > 0 || mRadiusTopRight > 0 || mRadiusBottomLeft > 0 || mRadiusBottomRight > 0) {
             //优先处理自定义圆角大小
-            float[] radii = new float[]{
-                    mRadiusTopLeft, mRadiusTopLeft,
-                    mRadiusTopRight, mRadiusTopRight,
-                    mRadiusBottomRight, mRadiusBottomRight,
-                    mRadiusBottomLeft, mRadiusBottomLeft
-            };
-            bg.setCornerRadii(radii);
+            bg.setRadius(mRadiusTopLeft, mRadiusTopRight, mRadiusBottomLeft, mRadiusBottomRight);
         } else if (mRadius > 0) {
             //其次处理统一圆角大小
-            bg.setCornerRadius(mRadius);
+            bg.setRadius(mRadius);
         } else {
             //最后处理自适应半圆圆角
             bg.setIsRadiusAdjustBounds(isRadiusAdjustBounds);
         }
+        if (radiusTopLeftPercent >= 0 || radiusTopRightPercent >= 0
+                || radiusBottomRightPercent >= 0 || radiusBottomLeftPercent >= 0) {
+            //百分比圆角覆盖对应角的固定圆角
+            bg.setRadiusPercent(radiusTopLeftPercent, radiusTopRightPercent, radiusBottomRightPercent, radiusBottomLeftPercent);
+        }
         return bg;
     }
-}
\ No newline at end of file
+
+    /**
+     * 叠加的图层及其相对 JrvDrawable 的内缩距离
+     */
+    private static class Layer {
+        final JrvDrawable drawable;
+        final int insetLeft;
+        final int insetTop;
+        final int insetRight;
+        final int insetBottom;
+
+        Layer(JrvDrawable drawable, int insetLeft, int insetTop, int insetRight, int insetBottom) {
+            this.drawable = drawable;
+            this.insetLeft = insetLeft;
+            this.insetTop = insetTop;
+            this.insetRight = insetRight;
+            this.insetBottom = insetBottom;
+        }
+    }
+}
@@ -2,18 +2,28 @@ package com.jiang.jroundview;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
-import android.graphics.drawable.Drawable;
+import android.graphics.Canvas;
 import android.graphics.drawable.GradientDrawable;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
 import android.widget.FrameLayout;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
 
 /**
  * 见 {@link JrvTextView} 与 {@link JrvDrawable}
  */
 public class JrvFrameLayout extends FrameLayout implements JrvInterface<JrvFrameLayout> {
 
+    /**
+     * 角标, 没有设置时为 null
+     */
+    private JrvBadge mBadge;
+
     public JrvFrameLayout(Context context) {
         this(context, null);
     }
@@ -29,8 +39,7 @@ public class JrvFrameLayout extends FrameLayout implements JrvInterface<JrvFrame
 
 
     private void init(Context context, AttributeSet attrs, int defStyleAttr) {
-        JrvDrawable bg = JrvDrawable.fromAttributeSet(context, attrs, defStyleAttr);
-        JrvHelper.setBackgroundKeepingPadding(this, bg);
+        mBadge = JrvHelper.init(this, context, attrs, defStyleAttr);
     }
 
     /**
@@ -40,10 +49,10 @@ public class JrvFrameLayout extends FrameLayout implements JrvInterface<JrvFrame
      */
     @Override
     public JrvFrameLayout setJrvBackgroundColor(@ColorInt int color) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
             ColorStateList colorStateList = ColorStateList.valueOf(color);
-            ((JrvDrawable) background).setBgData(colorStateList);
+            background.setBgData(colorStateList);
         }
         return this;
     }
@@ -57,10 +66,10 @@ public class JrvFrameLayout extends FrameLayout implements JrvInterface<JrvFrame
      */
     @Override
     public JrvFrameLayout setJrvBorderWidthColor(int width, @ColorInt int color) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
             ColorStateList colorStateList = ColorStateList.valueOf(color);
-            ((JrvDrawable) background).setStrokeData(width, colorStateList);
+            background.setStrokeData(width, colorStateList);
         }
         return this;
     }
@@ -72,9 +81,9 @@ public class JrvFrameLayout extends FrameLayout implements JrvInterface<JrvFrame
      */
     @Override
     public JrvFrameLayout setJrvIsRadiusAdjustBounds(boolean isRadiusAdjustBounds) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setIsRadiusAdjustBounds(isRadiusAdjustBounds);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setIsRadiusAdjustBounds(isRadiusAdjustBounds);
         }
         return this;
     }
@@ -86,9 +95,9 @@ public class JrvFrameLayout extends FrameLayout implements JrvInterface<JrvFrame
      */
     @Override
     public JrvFrameLayout setJrvRadius(float radius) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setRadius(radius);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadius(radius);
         }
         return this;
     }
@@ -104,9 +113,35 @@ public class JrvFrameLayout extends FrameLayout implements JrvInterface<JrvFrame
      */
     @Override
     public JrvFrameLayout setJrvRadius(float topLeftRadius, float topRightRadius, float bottomRightRadius, float bottomLeftRadius) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setRadius(topLeftRadius, topRightRadius, bottomLeftRadius, bottomRightRadius);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadius(topLeftRadius, topRightRadius, bottomLeftRadius, bottomRightRadius);
+        }
+        return this;
+    }
+
+    /**
+     * 设置圆角大小为短边的百分比
+     *
+     * @param percent 相对短边的比例, 如 0.5f 即为半圆
+     */
+    @Override
+    public JrvFrameLayout setJrvRadiusPercent(float percent) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadiusPercent(percent);
+        }
+        return this;
+    }
+
+    /**
+     * 分别设置view 的四个圆角大小为短边的百分比
+     */
+    @Override
+    public JrvFrameLayout setJrvRadiusPercent(float topLeftPercent, float topRightPercent, float bottomRightPercent, float bottomLeftPercent) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadiusPercent(topLeftPercent, topRightPercent, bottomRightPercent, bottomLeftPercent);
         }
         return this;
     }
@@ -117,9 +152,9 @@ public class JrvFrameLayout extends FrameLayout implements JrvInterface<JrvFrame
     @Override
     public JrvFrameLayout setGradient(@ColorInt int[] colors) {
         if (colors != null && colors.length > 0) {
-            Drawable background = getBackground();
-            if (background instanceof JrvDrawable) {
-                ((JrvDrawable) background).setGradient(colors);
+            JrvDrawable background = JrvHelper.getJrvBackground(this);
+            if (background != null) {
+                background.setGradient(colors);
             }
         }
         return this;
@@ -127,10 +162,157 @@ public class JrvFrameLayout extends FrameLayout implements JrvInterface<JrvFrame
 
     @Override
     public JrvFrameLayout setGradientOrientation(GradientDrawable.Orientation orientation) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setOrientation(orientation);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setOrientation(orientation);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout addJrvLayer(@StyleRes int layerStyle) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.addLayer(getContext(), layerStyle);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout clearJrvLayers() {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.clearLayers();
+        }
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout setJrvStyleSpec(@NonNull JrvStyleSpec spec) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.applySpec(spec, getResources().getDisplayMetrics().density);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout setJrvShapeHitTest(boolean shapeHitTest) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setShapeHitTest(shapeHitTest);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout setJrvRippleColor(@Nullable ColorStateList color) {
+        JrvHelper.setRippleColor(this, color);
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout setJrvBorderProgress(float progress) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setBorderProgress(progress);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout setJrvBorderProgressStyle(@Nullable ColorStateList color, int width, int startGravity) {
+        JrvHelper.setBorderProgressStyle(this, color, width, startGravity);
+        return this;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (JrvHelper.isTouchOutsideShape(this, event)) {
+            return false;
+        }
+        return super.dispatchTouchEvent(event);
+    }
+
+    @Override
+    public JrvFrameLayout setJrvBadgeText(@Nullable CharSequence text) {
+        if (text != null || mBadge != null) {
+            mBadge = JrvHelper.obtainBadge(this, mBadge);
+            mBadge.setText(text);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout setJrvBadgeCount(int count) {
+        if (count > 0 || mBadge != null) {
+            mBadge = JrvHelper.obtainBadge(this, mBadge);
+            mBadge.setCount(count);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout setJrvBadgeColor(@ColorInt int color) {
+        mBadge = JrvHelper.obtainBadge(this, mBadge);
+        mBadge.setColor(color);
+        return this;
+    }
+
+    @Override
+    public JrvFrameLayout setJrvBadgeGravity(int gravity, int offsetX, int offsetY) {
+        mBadge = JrvHelper.obtainBadge(this, mBadge);
+        mBadge.setGravity(gravity, offsetX, offsetY);
+        return this;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        boolean profiling = JrvProfiler.isEnabled();
+        long start = profiling ? System.nanoTime() : 0;
+        super.draw(canvas);
+        if (mBadge != null) {
+            mBadge.draw(canvas);
         }
+        if (profiling) {
+            JrvProfiler.recordViewDraw(this, start);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        JrvOverdraw.onLayout(this, changed);
+        JrvBackgroundBatch.onLayout(this);
+    }
+
+    /**
+     * 开启后由本布局合批绘制子 View 中简单且静止的 Jrv 背景, 适用于大量标签等场景, 见 {@link JrvBackgroundBatch}
+     */
+    public JrvFrameLayout setJrvBatchChildBackgrounds(boolean enabled) {
+        JrvBackgroundBatch.setEnabled(this, enabled);
         return this;
     }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        int saveCount = JrvHelper.clipToShape(this, canvas);
+        JrvBackgroundBatch.draw(this, canvas);
+        super.dispatchDraw(canvas);
+        if (saveCount >= 0) {
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        JrvBackgroundBatch.onViewRemoved(this, child);
+    }
+
+    @Override
+    public void onDescendantInvalidated(@NonNull View child, @NonNull View target) {
+        super.onDescendantInvalidated(child, target);
+        JrvBackgroundBatch.onDescendantInvalidated(this, child);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.jiang.jroundview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 为纵向列表中连续的同组 item 绘制一个共同的圆角背景(iOS 风格的分组列表), item 自身不再需要 Jrv 背景。
+ * <p>
+ * <ul>
+ * <li>每组只绘制一次, 所有组共享同一个 {@link JrvDrawable}, 与 Jrv 控件使用同一套形状计算。</li>
+ * <li>组的一部分滑出屏幕时, 背景在该方向延伸到屏幕外, 不会在屏幕边缘出现圆角。</li>
+ * <li>组的左右边界为组内 item 的左右边界, 需要与屏幕边缘留出距离时给 item 设置 margin。</li>
+ * </ul>
+ * 需要项目依赖 androidx.recyclerview。
+ */
+public class JrvGroupDecoration extends RecyclerView.ItemDecoration {
+
+    /**
+     * {@link GroupLookup#getGroupId(int)} 返回该值的 item 不属于任何组, 不绘制背景
+     */
+    public static final long NO_GROUP = RecyclerView.NO_ID;
+
+    public interface GroupLookup {
+        /**
+         * @return 相同 id 且位置连续的 item 为一组
+         */
+        long getGroupId(int adapterPosition);
+    }
+
+    private final JrvDrawable mDrawable;
+    private final GroupLookup mLookup;
+    /**
+     * 组的一部分在屏幕外时背景向外延伸的距离, 大于圆角与描边即可; 自适应圆角时为描边部分, 圆角部分按组的宽度计算
+     */
+    private final int mOverflow;
+    private final boolean mRadiusAdjustBounds;
+    private int mGroupSpacing;
+    private final Rect mGroupBounds = new Rect();
+
+    /**
+     * @param spec 组背景的样式, 尺寸单位为 dp
+     */
+    public JrvGroupDecoration(@NonNull Context context, @NonNull JrvStyleSpec spec, @NonNull GroupLookup lookup) {
+        float density = context.getResources().getDisplayMetrics().density;
+        mDrawable = JrvDrawable.fromSpec(spec, density);
+        mLookup = lookup;
+        float radius = spec.getRadius();
+        float[] cornerRadii = spec.getCornerRadii();
+        if (cornerRadii != null) {
+            for (float cornerRadius : cornerRadii) {
+                radius = Math.max(radius, cornerRadius);
+            }
+        }
+        mRadiusAdjustBounds = spec.isRadiusAdjustBounds();
+        if (mRadiusAdjustBounds) {
+            radius = 0;
+        }
+        mOverflow = (int) Math.ceil((radius + spec.getBorderWidth()) * density) + 1;
+    }
+
+    /**
+     * 设置组与组之间的间距
+     *
+     * @param spacing 单位是px
+     */
+    public JrvGroupDecoration setGroupSpacing(int spacing) {
+        mGroupSpacing = spacing;
+        return this;
+    }
+
+    @Override
+    public void getItemOffsets(@NonNull Rect outRect, @NonNull View view, @NonNull RecyclerView parent,
+                               @NonNull RecyclerView.State state) {
+        outRect.setEmpty();
+        int position = parent.getChildAdapterPosition(view);
+        if (mGroupSpacing > 0 && position > 0 && position != RecyclerView.NO_POSITION
+                && mLookup.getGroupId(position) != mLookup.getGroupId(position - 1)) {
+            outRect.top = mGroupSpacing;
+        }
+    }
+
+    @Override
+    public void onDraw(@NonNull Canvas canvas, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        int itemCount = state.getItemCount();
+        long groupId = NO_GROUP;
+        int lastPosition = RecyclerView.NO_POSITION;
+        boolean topClipped = false;
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            int position = parent.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            long id = mLookup.getGroupId(position);
+            int left = child.getLeft() + Math.round(child.getTranslationX());
+            int top = child.getTop() + Math.round(child.getTranslationY());
+            int right = child.getRight() + Math.round(child.getTranslationX());
+            int bottom = child.getBottom() + Math.round(child.getTranslationY());
+            if (id != NO_GROUP && id == groupId && position == lastPosition + 1) {
+                mGroupBounds.union(left, top, right, bottom);
+            } else {
+                drawGroup(canvas, groupId, lastPosition, itemCount, topClipped);
+                groupId = id;
+                mGroupBounds.set(left, top, right, bottom);
+                // 组的上半部分在屏幕外
+                topClipped = id != NO_GROUP && position > 0 && mLookup.getGroupId(position - 1) == id;
+            }
+            lastPosition = position;
+        }
+        drawGroup(canvas, groupId, lastPosition, itemCount, topClipped);
+    }
+
+    private void drawGroup(Canvas canvas, long groupId, int lastPosition, int itemCount, boolean topClipped) {
+        if (groupId == NO_GROUP || mGroupBounds.isEmpty()) {
+            return;
+        }
+        // 自适应圆角为延伸后短边的一半, 不超过组宽度的一半
+        int overflow = mRadiusAdjustBounds ? mOverflow + (mGroupBounds.width() + 1) / 2 : mOverflow;
+        if (topClipped) {
+            mGroupBounds.top -= overflow;
+        }
+        if (lastPosition + 1 < itemCount && mLookup.getGroupId(lastPosition + 1) == groupId) {
+            // 组的下半部分在屏幕外
+            mGroupBounds.bottom += overflow;
+        }
+        mDrawable.setBounds(mGroupBounds);
+        mDrawable.draw(canvas);
+    }
+}
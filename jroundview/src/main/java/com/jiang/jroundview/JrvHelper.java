@@ -1,16 +1,87 @@
 package com.jiang.jroundview;
 
 import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Path;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.RippleDrawable;
 import android.os.Build;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.MotionEvent;
 import android.view.View;
 
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+
 /**
  * @author jiangjunjie01
  * Date： 2021/12/29
  */
 class JrvHelper {
 
+    /**
+     * 解析 jrv_* 属性, 设置 {@link JrvDrawable} 背景
+     *
+     * @return xml 中设置了 jrv_badge* 属性时返回角标, 否则返回 null
+     */
+    public static JrvBadge init(View view, Context context, AttributeSet attrs, int defStyleAttr) {
+        TypedArray typedArray = initBackground(view, context, attrs, defStyleAttr);
+        if (typedArray == null) {
+            return null;
+        }
+        JrvBadge badge = JrvBadge.fromTypedArray(view, typedArray);
+        typedArray.recycle();
+        return badge;
+    }
+
+    /**
+     * 设置 {@link JrvDrawable} 背景, 优先使用 {@link JrvSpecTable} 中编译期生成的样式, 其次从 {@link JrvStateCache} 复制
+     *
+     * @return 还需要读取角标、图标等其他属性时返回 TypedArray, 由调用方回收; 命中缓存且没有其他属性时返回 null
+     */
+    public static TypedArray initBackground(View view, Context context, AttributeSet attrs, int defStyleAttr) {
+        JrvStyleSpec spec = JrvSpecTable.lookup(context, attrs, defStyleAttr);
+        if (spec != null) {
+            // 编译期生成的样式只包含背景属性
+            JrvDrawable bg = JrvDrawable.fromSpec(spec, context.getResources().getDisplayMetrics().density);
+            bg.setOrigin(JrvDrawable.ORIGIN_SPEC_TABLE);
+            setJrvBackground(view, bg);
+            return null;
+        }
+        String key = JrvStateCache.keyOf(context, attrs, defStyleAttr);
+        JrvStateCache.Entry entry = key == null ? null : JrvStateCache.get(key, context.getResources());
+        if (entry != null) {
+            JrvDrawable bg = entry.newDrawable();
+            bg.setOrigin(JrvDrawable.ORIGIN_STATE_CACHE);
+            setJrvBackground(view, bg);
+            return entry.hasExtras ? context.obtainStyledAttributes(attrs, R.styleable.JrvTextView, defStyleAttr, 0) : null;
+        }
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.JrvTextView, defStyleAttr, 0);
+        JrvDrawable bg = JrvDrawable.fromTypedArray(context, typedArray);
+        bg.setOrigin(JrvDrawable.ORIGIN_PARSED);
+        if (key != null) {
+            JrvStateCache.put(key, context.getResources(), bg, typedArray);
+        }
+        setJrvBackground(view, bg);
+        return typedArray;
+    }
+
+    /**
+     * 获取角标, 没有时创建
+     */
+    public static JrvBadge obtainBadge(View view, JrvBadge badge) {
+        if (badge == null) {
+            badge = new JrvBadge(view);
+            // 背景被替换为 null 时 ViewGroup 不会调用 draw
+            view.setWillNotDraw(false);
+        }
+        return badge;
+    }
+
     public static void setBackgroundKeepingPadding(View view, Drawable drawable) {
         int[] padding = new int[]{view.getPaddingLeft(), view.getPaddingTop(), view.getPaddingRight(), view.getPaddingBottom()};
         setBackground(view, drawable);
@@ -27,4 +98,119 @@ class JrvHelper {
         }
     }
 
+    /**
+     * 开启了 jrv_shapeHitTest 时, 判断按下的点是否落在圆角之外
+     * 只判断 ACTION_DOWN, 按下时不处理, 后续事件也不会再分发给该 View
+     */
+    public static boolean isTouchOutsideShape(View view, MotionEvent event) {
+        if (event.getActionMasked() != MotionEvent.ACTION_DOWN) {
+            return false;
+        }
+        Drawable background = getJrvBackground(view);
+        if (background instanceof JrvDrawable) {
+            JrvDrawable drawable = (JrvDrawable) background;
+            return drawable.isShapeHitTest() && !drawable.containsPoint(event.getX(), event.getY());
+        }
+        return false;
+    }
+
+    /**
+     * 获取 View 的 {@link JrvDrawable} 背景, 背景已被包装为水波纹时返回其中的 JrvDrawable
+     *
+     * @return 没有 Jrv 背景时返回 null
+     */
+    public static JrvDrawable getJrvBackground(View view) {
+        Drawable background = view.getBackground();
+        if (background instanceof JrvDrawable) {
+            return (JrvDrawable) background;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && background instanceof RippleDrawable) {
+            RippleDrawable ripple = (RippleDrawable) background;
+            if (ripple.getNumberOfLayers() > 0 && ripple.getDrawable(0) instanceof JrvDrawable) {
+                return (JrvDrawable) ripple.getDrawable(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 背景设置了 jrv_clipToShape 时将画布裁剪为背景的形状, 由 Jrv 布局在绘制子 View 前调用
+     *
+     * @return 需要恢复的 save count, 没有裁剪时返回 -1
+     */
+    public static int clipToShape(View view, Canvas canvas) {
+        JrvDrawable background = getJrvBackground(view);
+        if (background == null || !background.isClipToShape()) {
+            return -1;
+        }
+        Path path = background.getShapePath();
+        if (path == null) {
+            return -1;
+        }
+        int saveCount = canvas.save();
+        // 背景不随内容滚动
+        canvas.translate(view.getScrollX(), view.getScrollY());
+        canvas.clipPath(path);
+        canvas.translate(-view.getScrollX(), -view.getScrollY());
+        return saveCount;
+    }
+
+    /**
+     * 设置 Jrv 背景, 设置了水波纹颜色时(Android 5.0 以上)包装为 RippleDrawable;
+     * 在创建背景或设置水波纹颜色时调用, 不在触摸事件中替换背景
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void setJrvBackground(View view, JrvDrawable drawable) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && drawable.getRippleColor() != null) {
+            setBackgroundKeepingPadding(view,
+                    new RippleDrawable(drawable.getRippleColor(), drawable, new JrvRippleMask(drawable)));
+        } else {
+            setBackgroundKeepingPadding(view, drawable);
+        }
+    }
+
+    /**
+     * 设置进度边框的样式, 起点按 View 的布局方向转换为圆角
+     *
+     * @param startGravity {@link Gravity#TOP} | {@link Gravity#START} 等
+     */
+    public static void setBorderProgressStyle(View view, @Nullable ColorStateList color, int width, int startGravity) {
+        JrvDrawable drawable = getJrvBackground(view);
+        if (drawable == null) {
+            return;
+        }
+        int gravity = Gravity.getAbsoluteGravity(startGravity, ViewCompat.getLayoutDirection(view));
+        boolean right = (gravity & Gravity.HORIZONTAL_GRAVITY_MASK) == Gravity.RIGHT;
+        int startCorner;
+        if ((gravity & Gravity.VERTICAL_GRAVITY_MASK) == Gravity.BOTTOM) {
+            startCorner = right ? JrvDrawable.PROGRESS_START_BOTTOM_RIGHT : JrvDrawable.PROGRESS_START_BOTTOM_LEFT;
+        } else {
+            startCorner = right ? JrvDrawable.PROGRESS_START_TOP_RIGHT : JrvDrawable.PROGRESS_START_TOP_LEFT;
+        }
+        drawable.setBorderProgressStyle(color, width, startCorner);
+    }
+
+    /**
+     * 设置水波纹颜色, 已经创建了水波纹时直接修改其颜色, 否则立即包装背景
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public static void setRippleColor(View view, ColorStateList rippleColor) {
+        JrvDrawable drawable = getJrvBackground(view);
+        if (drawable == null) {
+            return;
+        }
+        drawable.setRippleColor(rippleColor);
+        Drawable background = view.getBackground();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && background instanceof RippleDrawable) {
+            if (rippleColor != null) {
+                ((RippleDrawable) background).setColor(rippleColor);
+            } else {
+                // 取消水波纹, 恢复为 JrvDrawable
+                setBackgroundKeepingPadding(view, drawable);
+            }
+        } else if (rippleColor != null) {
+            setJrvBackground(view, drawable);
+        }
+    }
+
 }
@@ -0,0 +1,185 @@
+package com.jiang.jroundview;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.content.res.AppCompatResources;
+import androidx.core.graphics.drawable.DrawableCompat;
+
+import java.util.Map;
+
+/**
+ * 进程级的着色图标缓存, 以 (图片资源, 着色, 大小, 屏幕密度, 夜间模式) 为 key 缓存着色后的 {@link Drawable.ConstantState}。
+ * <p>
+ * 相同的按钮共享同一个 ConstantState, 每个 View 只创建一个轻量的 Drawable 实例。
+ * 着色通过 tint 实现, 不同状态(按下、不可用)的颜色由 Drawable 在状态变化时自行切换, 不会重新着色。
+ */
+final class JrvIconCache {
+
+    private static final int MAX_SIZE = 64;
+
+    private static final LruCache<Key, Entry> sCache = new LruCache<>(MAX_SIZE);
+
+    static {
+        JrvMemory.register(new JrvMemory.Cache() {
+            @NonNull
+            @Override
+            public String getName() {
+                return "JrvIconCache";
+            }
+
+            @NonNull
+            @Override
+            public JrvMemory.Category getCategory() {
+                return JrvMemory.Category.DRAWABLE;
+            }
+
+            @Override
+            public int getEntryCount() {
+                return sCache.size();
+            }
+
+            @Override
+            public long getEstimatedBytes() {
+                long bytes = 0;
+                for (Map.Entry<Key, Entry> entry : sCache.snapshot().entrySet()) {
+                    bytes += entry.getValue().estimatedBytes;
+                }
+                return bytes;
+            }
+
+            @Override
+            public void trim(float keepFraction) {
+                sCache.trimToSize((int) (MAX_SIZE * keepFraction));
+            }
+        });
+    }
+
+    private JrvIconCache() {
+    }
+
+    /**
+     * 获取着色后的图标, 已设置好 bounds
+     *
+     * @param size 图标大小, 单位是px, 小于等于 0 时使用图片自身大小
+     */
+    @Nullable
+    static Drawable obtain(@NonNull Context context, @DrawableRes int resId, @Nullable ColorStateList tint, int size) {
+        if (resId == 0) {
+            return null;
+        }
+        Resources resources = context.getResources();
+        Configuration configuration = resources.getConfiguration();
+        Key key = new Key(resId, tint, size, resources.getDisplayMetrics().densityDpi,
+                configuration.uiMode & Configuration.UI_MODE_NIGHT_MASK);
+        Entry entry = sCache.get(key);
+        Drawable drawable;
+        if (entry != null) {
+            drawable = entry.state.newDrawable(resources);
+        } else {
+            drawable = AppCompatResources.getDrawable(context, resId);
+            if (drawable == null) {
+                return null;
+            }
+            drawable = DrawableCompat.wrap(drawable.mutate());
+            if (tint != null) {
+                DrawableCompat.setTintList(drawable, tint);
+            }
+            Drawable.ConstantState state = drawable.getConstantState();
+            if (state != null) {
+                sCache.put(key, new Entry(state, estimateBytes(drawable)));
+            }
+        }
+        if (size > 0) {
+            drawable.setBounds(0, 0, size, size);
+        } else {
+            drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        }
+        return drawable;
+    }
+
+    private static int estimateBytes(Drawable drawable) {
+        // Drawable 与 ConstantState 本身
+        int bytes = 256;
+        Drawable inner = DrawableCompat.unwrap(drawable);
+        if (inner instanceof BitmapDrawable && ((BitmapDrawable) inner).getBitmap() != null) {
+            bytes += ((BitmapDrawable) inner).getBitmap().getByteCount();
+        }
+        return bytes;
+    }
+
+    private static final class Entry {
+        final Drawable.ConstantState state;
+        final int estimatedBytes;
+
+        Entry(Drawable.ConstantState state, int estimatedBytes) {
+            this.state = state;
+            this.estimatedBytes = estimatedBytes;
+        }
+    }
+
+    private static final class Key {
+        final int resId;
+        final ColorStateList tint;
+        final int size;
+        final int densityDpi;
+        final int nightMode;
+
+        Key(int resId, ColorStateList tint, int size, int densityDpi, int nightMode) {
+            this.resId = resId;
+            this.tint = tint;
+            this.size = size;
+            this.densityDpi = densityDpi;
+            this.nightMode = nightMode;
+        }
+
+        /**
+         * 有状态的着色按实例比较(资源中的 ColorStateList 会被系统缓存复用), 单色的着色按颜色值比较
+         */
+        private static boolean sameTint(ColorStateList a, ColorStateList b) {
+            if (a == b) {
+                return true;
+            }
+            if (a == null || b == null || a.isStateful() || b.isStateful()) {
+                return false;
+            }
+            return a.getDefaultColor() == b.getDefaultColor();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return resId == that.resId
+                    && size == that.size
+                    && densityDpi == that.densityDpi
+                    && nightMode == that.nightMode
+                    && sameTint(tint, that.tint);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = resId;
+            result = 31 * result + size;
+            result = 31 * result + densityDpi;
+            result = 31 * result + nightMode;
+            if (tint != null) {
+                result = 31 * result + (tint.isStateful() ? System.identityHashCode(tint) : tint.getDefaultColor());
+            }
+            return result;
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.jiang.jroundview;
 
+import android.content.res.ColorStateList;
 import android.graphics.drawable.GradientDrawable;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
 
 /**
  * @author jiangjunjie01
@@ -52,6 +56,23 @@ interface JrvInterface<T> {
      */
     T setJrvRadius(float topLeftRadius, float topRightRadius, float bottomRightRadius, float bottomLeftRadius);
 
+    /**
+     * 设置圆角大小为短边的百分比, 大小变化时自动重新计算
+     *
+     * @param percent 相对短边的比例, 如 0.5f 即为半圆
+     */
+    T setJrvRadiusPercent(float percent);
+
+    /**
+     * 分别设置view 的四个圆角大小为短边的百分比, 小于 0 的角使用固定圆角
+     *
+     * @param topLeftPercent     左上方
+     * @param topRightPercent    右上方
+     * @param bottomRightPercent 右下方
+     * @param bottomLeftPercent  左下方
+     */
+    T setJrvRadiusPercent(float topLeftPercent, float topRightPercent, float bottomRightPercent, float bottomLeftPercent);
+
     /**
      * 渐变背景色
      *
@@ -63,4 +84,78 @@ interface JrvInterface<T> {
      * 设置渐变色方向
      */
     T setGradientOrientation(GradientDrawable.Orientation orientation);
-}
\ No newline at end of file
+
+    /**
+     * 叠加一个形状图层, 一个 Jrv 控件即可绘制多层背景/边框, 无需嵌套多个 Jrv 控件
+     *
+     * @param layerStyle 包含 jrv_* 属性的 style 资源, 可用 jrv_layerInset 等属性指定内缩距离
+     */
+    T addJrvLayer(@StyleRes int layerStyle);
+
+    /**
+     * 移除所有叠加的形状图层
+     */
+    T clearJrvLayers();
+
+    /**
+     * 应用共享样式, 通常由服务端下发的样式文本解析得到, 见 {@link JrvStyleSpec}
+     * 重复设置相同的样式时不会修改背景
+     */
+    T setJrvStyleSpec(@NonNull JrvStyleSpec spec);
+
+    /**
+     * 设置是否只响应形状内的点击, 开启后圆角外的透明区域不再响应点击
+     */
+    T setJrvShapeHitTest(boolean shapeHitTest);
+
+    /**
+     * 设置按下时的水波纹颜色, 水波纹的形状与圆角一致, Android 5.0 以上生效
+     *
+     * @param color null 时取消水波纹
+     */
+    T setJrvRippleColor(@Nullable ColorStateList color);
+
+    /**
+     * 设置沿边框绘制的进度, 如倒计时、上传进度, 只截取一次缓存的边框轮廓并刷新, 可以在动画的每一帧调用
+     *
+     * @param progress 0~1, 小于 0 时不绘制进度
+     */
+    T setJrvBorderProgress(float progress);
+
+    /**
+     * 设置进度边框的颜色、宽度与起点, 进度从起点圆角的中点开始顺时针绘制
+     *
+     * @param color        为 null 时不绘制进度
+     * @param width        单位是px
+     * @param startGravity 起点所在的圆角, 如 {@link android.view.Gravity#TOP} | {@link android.view.Gravity#START}
+     */
+    T setJrvBorderProgressStyle(@Nullable ColorStateList color, int width, int startGravity);
+
+    /**
+     * 设置角标文字, 角标由控件自身绘制, 不需要额外的 View
+     *
+     * @param text null 时不显示, 空字符串时显示小红点
+     */
+    T setJrvBadgeText(@Nullable CharSequence text);
+
+    /**
+     * 设置角标数字
+     *
+     * @param count 小于等于 0 时不显示, 大于 99 时显示 99+
+     */
+    T setJrvBadgeCount(int count);
+
+    /**
+     * 设置角标背景色
+     */
+    T setJrvBadgeColor(@ColorInt int color);
+
+    /**
+     * 设置角标位置
+     *
+     * @param gravity {@link android.view.Gravity#TOP} | {@link android.view.Gravity#END} 等
+     * @param offsetX 水平方向向内的偏移量, 单位是px
+     * @param offsetY 竖直方向向内的偏移量, 单位是px
+     */
+    T setJrvBadgeGravity(int gravity, int offsetX, int offsetY);
+}
@@ -0,0 +1,197 @@
+package com.jiang.jroundview;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 统计并回收 JRoundView 内部缓存占用的内存。
+ * <p>
+ * <ul>
+ * <li>使用 {@link #getStats()} 获取每个缓存的条目数与估算的字节数, 可用于 App 内的诊断页面。</li>
+ * <li>使用 {@link #install(Context)} 监听 {@link ComponentCallbacks2#onTrimMemory(int)}, 按内存紧张程度分级回收缓存。</li>
+ * </ul>
+ * 字节数是按对象结构估算的值, 不包含被缓存对象引用的系统资源(如 Bitmap 的像素数据以外的 native 内存)。
+ */
+public final class JrvMemory {
+
+    /**
+     * 缓存的类型
+     */
+    public enum Category {
+        DRAWABLE,
+        SHARED_STATE,
+        SHADER,
+        PATH,
+        BITMAP,
+        TEXT_LAYOUT
+    }
+
+    /**
+     * 库内部的缓存需要实现该接口并通过 {@link #register(Cache)} 注册
+     */
+    interface Cache {
+        @NonNull
+        String getName();
+
+        @NonNull
+        Category getCategory();
+
+        int getEntryCount();
+
+        long getEstimatedBytes();
+
+        /**
+         * 回收缓存
+         *
+         * @param keepFraction 保留的比例, 0 表示清空
+         */
+        void trim(float keepFraction);
+    }
+
+    /**
+     * 单个缓存的统计数据
+     */
+    public static final class Stats {
+        @NonNull
+        public final String name;
+        @NonNull
+        public final Category category;
+        public final int entryCount;
+        public final long estimatedBytes;
+
+        Stats(@NonNull String name, @NonNull Category category, int entryCount, long estimatedBytes) {
+            this.name = name;
+            this.category = category;
+            this.entryCount = entryCount;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return name + "(" + category + "): " + entryCount + " entries, " + estimatedBytes + " bytes";
+        }
+    }
+
+    private static final List<Cache> sCaches = new CopyOnWriteArrayList<>();
+    private static ComponentCallbacks2 sCallbacks;
+
+    private JrvMemory() {
+    }
+
+    static void register(@NonNull Cache cache) {
+        sCaches.add(cache);
+    }
+
+    /**
+     * @return 每个已创建的缓存的统计数据, 未使用的功能不会创建缓存
+     */
+    @NonNull
+    public static List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>(sCaches.size());
+        for (Cache cache : sCaches) {
+            stats.add(new Stats(cache.getName(), cache.getCategory(), cache.getEntryCount(), cache.getEstimatedBytes()));
+        }
+        return stats;
+    }
+
+    /**
+     * @return 所有缓存估算的总字节数
+     */
+    public static long getTotalBytes() {
+        long total = 0;
+        for (Cache cache : sCaches) {
+            total += cache.getEstimatedBytes();
+        }
+        return total;
+    }
+
+    /**
+     * @return 指定类型的缓存估算的总字节数
+     */
+    public static long getBytes(@NonNull Category category) {
+        long total = 0;
+        for (Cache cache : sCaches) {
+            if (cache.getCategory() == category) {
+                total += cache.getEstimatedBytes();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 按 {@link ComponentCallbacks2} 的 TRIM_MEMORY_* 等级回收缓存
+     * <ul>
+     * <li>RUNNING_MODERATE / UI_HIDDEN: 保留一半</li>
+     * <li>RUNNING_LOW / BACKGROUND: 保留四分之一</li>
+     * <li>RUNNING_CRITICAL / MODERATE / COMPLETE: 全部清空</li>
+     * </ul>
+     */
+    public static void trimMemory(int level) {
+        float keepFraction = keepFractionOf(level);
+        if (keepFraction >= 1) {
+            return;
+        }
+        for (Cache cache : sCaches) {
+            cache.trim(keepFraction);
+        }
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public static void clear() {
+        for (Cache cache : sCaches) {
+            cache.trim(0);
+        }
+    }
+
+    /**
+     * 监听系统的内存回收回调, 重复调用只会注册一次
+     */
+    public static synchronized void install(@NonNull Context context) {
+        if (sCallbacks != null) {
+            return;
+        }
+        sCallbacks = new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                trimMemory(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                clear();
+            }
+        };
+        context.getApplicationContext().registerComponentCallbacks(sCallbacks);
+    }
+
+    static float keepFractionOf(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            return 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return 0.25f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            return 0.5f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return 0.25f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return 0.5f;
+        }
+        return 1;
+    }
+}
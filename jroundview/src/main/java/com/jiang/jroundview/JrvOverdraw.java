@@ -0,0 +1,262 @@
+package com.jiang.jroundview;
+
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.WeakHashMap;
+
+/**
+ * 嵌套 Jrv 背景之间的过度绘制优化, 默认关闭。
+ * <p>
+ * 开启后, Jrv 控件布局或背景变化时检查最近的带背景的祖先:
+ * 祖先是不透明、无状态、无叠加图层的纯色 {@link JrvDrawable}, 与子 View 的填充色相同,
+ * 且子 View 的圆角矩形完全落在祖先的圆角(与描边)之内时, 子 View 只绘制描边与图层, 不再重复填充。
+ * <p>
+ * <ul>
+ * <li>子 View 与祖先之间有 View 设置了变换(平移、缩放、旋转)或有先绘制的兄弟 View 与其重叠时不做优化。</li>
+ * <li>只在布局与背景设置变化时重新检查, 使用属性动画移动子 View 时请关闭。</li>
+ * <li>{@link #getSkippedDrawCount()} 与 {@link #getSkippedPixels()} 统计跳过的绘制, 可用于调试页面。</li>
+ * </ul>
+ * 只能在主线程调用。
+ */
+public final class JrvOverdraw {
+
+    private static boolean sEnabled;
+    /**
+     * 当前跳过填充的 Drawable, 关闭时恢复
+     */
+    private static final WeakHashMap<JrvDrawable, Boolean> sSkipped = new WeakHashMap<>();
+    private static long sSkippedDrawCount;
+    private static long sSkippedPixels;
+    /**
+     * 检查时复用的圆角数组, 顺序同 {@link JrvDrawable#computeRadii(int, int, float[])}
+     */
+    private static final float[] sChildRadii = new float[8];
+    private static final float[] sCoverRadii = new float[8];
+
+    private JrvOverdraw() {
+    }
+
+    /**
+     * 开启或关闭优化, 关闭时立即恢复所有被跳过的填充, 开启后在下一次布局时生效
+     */
+    public static void setEnabled(boolean enabled) {
+        if (sEnabled == enabled) {
+            return;
+        }
+        sEnabled = enabled;
+        if (!enabled) {
+            List<JrvDrawable> skipped = new ArrayList<>(sSkipped.keySet());
+            for (JrvDrawable drawable : skipped) {
+                drawable.setFillSkipped(false);
+            }
+        }
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @return 当前跳过填充的背景数量
+     */
+    public static int getSkippedFillCount() {
+        return sSkipped.size();
+    }
+
+    /**
+     * @return 自上次 {@link #resetStats()} 以来跳过填充的 draw 次数
+     */
+    public static long getSkippedDrawCount() {
+        return sSkippedDrawCount;
+    }
+
+    /**
+     * @return 自上次 {@link #resetStats()} 以来少绘制的像素数, 按背景的矩形面积估算
+     */
+    public static long getSkippedPixels() {
+        return sSkippedPixels;
+    }
+
+    public static void resetStats() {
+        sSkippedDrawCount = 0;
+        sSkippedPixels = 0;
+    }
+
+    /**
+     * Jrv 控件布局完成后调用, 大小变化时同时检查子孙 View, 祖先的圆角可能随大小变化
+     */
+    static void onLayout(@NonNull View view, boolean changed) {
+        if (!sEnabled) {
+            return;
+        }
+        update(view);
+        if (changed && view instanceof ViewGroup) {
+            updateDescendants((ViewGroup) view);
+        }
+    }
+
+    /**
+     * 背景的颜色、描边、圆角或透明度变化时调用
+     */
+    static void onAppearanceChanged(@NonNull JrvDrawable drawable) {
+        Drawable.Callback callback = drawable.getCallback();
+        if (callback instanceof Drawable) {
+            // 被水波纹包装时回调为 RippleDrawable
+            callback = ((Drawable) callback).getCallback();
+        }
+        if (!(callback instanceof View)) {
+            drawable.setFillSkipped(false);
+            return;
+        }
+        if (!sEnabled) {
+            return;
+        }
+        View view = (View) callback;
+        update(view);
+        if (view instanceof ViewGroup) {
+            updateDescendants((ViewGroup) view);
+        }
+    }
+
+    static void onFillSkipped(Rect bounds) {
+        sSkippedDrawCount++;
+        sSkippedPixels += (long) bounds.width() * bounds.height();
+    }
+
+    static void onFillSkippedChanged(@NonNull JrvDrawable drawable, boolean skipped) {
+        if (skipped) {
+            sSkipped.put(drawable, Boolean.TRUE);
+        } else {
+            sSkipped.remove(drawable);
+        }
+    }
+
+    private static void updateDescendants(ViewGroup group) {
+        for (int i = 0; i < group.getChildCount(); i++) {
+            View child = group.getChildAt(i);
+            update(child);
+            if (child instanceof ViewGroup) {
+                updateDescendants((ViewGroup) child);
+            }
+        }
+    }
+
+    private static void update(View view) {
+        JrvDrawable drawable = JrvHelper.getJrvBackground(view);
+        if (drawable != null) {
+            drawable.setFillSkipped(sEnabled && isCovered(view, drawable));
+        }
+    }
+
+    /**
+     * 判断 view 的填充是否被最近的带背景的祖先以相同颜色完全覆盖
+     */
+    private static boolean isCovered(View view, JrvDrawable drawable) {
+        int color = drawable.getSolidFillColor();
+        if (Color.alpha(color) == 0 || view.getWidth() <= 0 || view.getHeight() <= 0
+                || !view.getMatrix().isIdentity()) {
+            return false;
+        }
+        // view 相对当前祖先的位置
+        float left = 0;
+        float top = 0;
+        View current = view;
+        ViewParent parent = view.getParent();
+        while (parent instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) parent;
+            left += current.getLeft() - group.getScrollX();
+            top += current.getTop() - group.getScrollY();
+            if (overlapsPreviousSibling(group, current)) {
+                return false;
+            }
+            Drawable background = group.getBackground();
+            if (background != null) {
+                // 水波纹包装的 Jrv 背景按其中的 JrvDrawable 判断
+                JrvDrawable cover = JrvHelper.getJrvBackground(group);
+                if (cover == null) {
+                    return false;
+                }
+                int coverColor = cover.getSolidFillColor();
+                // 相同颜色以任意透明度叠加在不透明的相同颜色上, 结果不变
+                if (Color.alpha(coverColor) != 0xFF || cover.getAlpha() != 0xFF
+                        || (coverColor & 0xFFFFFF) != (color & 0xFFFFFF)) {
+                    return false;
+                }
+                return contains(cover, group.getWidth(), group.getHeight(),
+                        drawable, left, top, view.getWidth(), view.getHeight());
+            }
+            if (!group.getMatrix().isIdentity()) {
+                return false;
+            }
+            current = group;
+            parent = group.getParent();
+        }
+        return false;
+    }
+
+    /**
+     * 是否有先于 child 绘制的兄弟 View 与 child 重叠, 重叠时 child 的填充会盖住兄弟 View, 不能跳过
+     */
+    private static boolean overlapsPreviousSibling(ViewGroup group, View child) {
+        for (int i = 0; i < group.getChildCount(); i++) {
+            View sibling = group.getChildAt(i);
+            if (sibling == child) {
+                return false;
+            }
+            if (sibling.getVisibility() == View.VISIBLE
+                    && sibling.getLeft() < child.getRight() && child.getLeft() < sibling.getRight()
+                    && sibling.getTop() < child.getBottom() && child.getTop() < sibling.getBottom()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 子 View 的圆角矩形是否完全落在祖先圆角矩形的描边以内
+     */
+    private static boolean contains(JrvDrawable cover, int coverWidth, int coverHeight,
+                                    JrvDrawable child, float left, float top, int width, int height) {
+        float stroke = cover.getStrokeWidth();
+        float right = left + width;
+        float bottom = top + height;
+        if (left < stroke || top < stroke || right > coverWidth - stroke || bottom > coverHeight - stroke) {
+            return false;
+        }
+        cover.computeRadii(coverWidth, coverHeight, sCoverRadii);
+        child.computeRadii(width, height, sChildRadii);
+        if (!JrvDrawable.isCircular(sCoverRadii) || !JrvDrawable.isCircular(sChildRadii)) {
+            // 椭圆圆角不做优化
+            return false;
+        }
+        return isCornerCovered(left, top, sChildRadii[0], sCoverRadii[0], stroke)
+                && isCornerCovered(coverWidth - right, top, sChildRadii[2], sCoverRadii[2], stroke)
+                && isCornerCovered(coverWidth - right, coverHeight - bottom, sChildRadii[4], sCoverRadii[4], stroke)
+                && isCornerCovered(left, coverHeight - bottom, sChildRadii[6], sCoverRadii[6], stroke);
+    }
+
+    /**
+     * 以祖先的一个角为原点判断, 子 View 落在该角的圆角区域内的部分到圆心的距离
+     * 不超过 |(dx, dy)| + childRadius, 其中 (dx, dy) 为子 View 圆角圆心到祖先圆心的偏移
+     *
+     * @param insetX 子 View 到祖先该角所在竖边的距离
+     * @param insetY 子 View 到祖先该角所在横边的距离
+     */
+    private static boolean isCornerCovered(float insetX, float insetY, float childRadius, float coverRadius, float stroke) {
+        if (coverRadius <= 0 || insetX >= coverRadius || insetY >= coverRadius) {
+            return true;
+        }
+        float dx = Math.max(0, coverRadius - insetX - childRadius);
+        float dy = Math.max(0, coverRadius - insetY - childRadius);
+        return (float) Math.sqrt(dx * dx + dy * dy) + childRadius <= Math.max(0, coverRadius - stroke);
+    }
+}
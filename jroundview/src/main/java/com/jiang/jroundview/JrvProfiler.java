@@ -0,0 +1,270 @@
+package com.jiang.jroundview;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Jrv 控件与 {@link JrvDrawable} 的耗时统计, 默认关闭。
+ * <p>
+ * <ul>
+ * <li>按样式(见 {@link JrvDrawable#getStyleKey()})分别统计 draw、onBoundsChange、onStateChange 与控件 draw 的耗时。</li>
+ * <li>直方图在类加载时一次性分配, 记录时只做原子加, 不加锁也不分配内存; 样式超过 {@link #MAX_STYLES} 个时计入 "other"。</li>
+ * <li>{@link JrvAnimator} 提升硬件层的次数与当前数量见 {@link #getLayerPromotionCount()}、{@link #getActiveLayerCount()}, 不需要开启。</li>
+ * <li>使用 {@link #snapshot()} 获取按总耗时排序的结果, 或 {@link #dump(File)} 写入文件后从线上包取回分析。</li>
+ * </ul>
+ */
+public final class JrvProfiler {
+
+    /**
+     * 统计的操作
+     */
+    public enum Operation {
+        /**
+         * JrvDrawable.draw, 包含叠加的图层
+         */
+        DRAW,
+        BOUNDS_CHANGE,
+        STATE_CHANGE,
+        /**
+         * Jrv 控件的 draw, 包含背景、内容、角标, ViewGroup 还包含子 View
+         */
+        VIEW_DRAW
+    }
+
+    public static final int MAX_STYLES = 64;
+    /**
+     * 直方图按 2 的幂划分微秒: 第 0 个桶小于 1us, 第 i 个桶为 [2^(i-1), 2^i)us, 最后一个桶包含更长的耗时
+     */
+    public static final int BUCKET_COUNT = 16;
+
+    private static final int OPERATION_COUNT = Operation.values().length;
+    private static final String OTHER_STYLE = "other";
+
+    private static volatile boolean sEnabled;
+    private static final String[] sStyleKeys = new String[MAX_STYLES];
+    private static int sStyleCount;
+    private static final AtomicLongArray sBuckets = new AtomicLongArray(MAX_STYLES * OPERATION_COUNT * BUCKET_COUNT);
+    private static final AtomicLongArray sTotalNanos = new AtomicLongArray(MAX_STYLES * OPERATION_COUNT);
+    private static final AtomicLongArray sMaxNanos = new AtomicLongArray(MAX_STYLES * OPERATION_COUNT);
+    private static long sLayerPromotionCount;
+    private static int sActiveLayerCount;
+
+    static {
+        sStyleKeys[0] = OTHER_STYLE;
+        sStyleCount = 1;
+    }
+
+    private JrvProfiler() {
+    }
+
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * 清空统计数据, 已分配的样式保留
+     */
+    public static void reset() {
+        for (int i = 0; i < sBuckets.length(); i++) {
+            sBuckets.set(i, 0);
+        }
+        for (int i = 0; i < sTotalNanos.length(); i++) {
+            sTotalNanos.set(i, 0);
+            sMaxNanos.set(i, 0);
+        }
+        sLayerPromotionCount = 0;
+    }
+
+    /**
+     * @return 自上次 {@link #reset()} 以来动画提升硬件层的次数
+     */
+    public static long getLayerPromotionCount() {
+        return sLayerPromotionCount;
+    }
+
+    /**
+     * @return 当前由动画提升的硬件层数量, 动画全部结束后应为 0
+     */
+    public static int getActiveLayerCount() {
+        return sActiveLayerCount;
+    }
+
+    static void onLayerPromoted() {
+        sLayerPromotionCount++;
+        sActiveLayerCount++;
+    }
+
+    static void onLayerDemoted() {
+        sActiveLayerCount--;
+    }
+
+    /**
+     * 调用方在开始前通过 {@link #isEnabled()} 判断是否记录, 未开启时不读取时间, 也不计算样式
+     *
+     * @param start 开始时的 {@link System#nanoTime()}
+     */
+    static void record(@NonNull JrvDrawable drawable, @NonNull Operation operation, long start) {
+        record(drawable.getProfileSlot(), operation, System.nanoTime() - start);
+    }
+
+    static void recordViewDraw(@NonNull View view, long start) {
+        long nanos = System.nanoTime() - start;
+        JrvDrawable background = JrvHelper.getJrvBackground(view);
+        int slot = background != null ? background.getProfileSlot() : 0;
+        record(slot, Operation.VIEW_DRAW, nanos);
+    }
+
+    private static void record(int slot, Operation operation, long nanos) {
+        int index = slot * OPERATION_COUNT + operation.ordinal();
+        sBuckets.incrementAndGet(index * BUCKET_COUNT + bucketOf(nanos));
+        sTotalNanos.addAndGet(index, nanos);
+        long max;
+        do {
+            max = sMaxNanos.get(index);
+        } while (nanos > max && !sMaxNanos.compareAndSet(index, max, nanos));
+    }
+
+    static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * 为样式分配统计位置, 每个 JrvDrawable 只在样式变化后调用一次
+     */
+    static synchronized int slotOf(@NonNull String styleKey) {
+        for (int i = 1; i < sStyleCount; i++) {
+            if (sStyleKeys[i].equals(styleKey)) {
+                return i;
+            }
+        }
+        if (sStyleCount >= MAX_STYLES) {
+            return 0;
+        }
+        sStyleKeys[sStyleCount] = styleKey;
+        return sStyleCount++;
+    }
+
+    /**
+     * @return 有记录的 (样式, 操作) 的统计数据, 按总耗时从大到小排序
+     */
+    @NonNull
+    public static List<Entry> snapshot() {
+        int styleCount;
+        synchronized (JrvProfiler.class) {
+            styleCount = sStyleCount;
+        }
+        Operation[] operations = Operation.values();
+        List<Entry> entries = new ArrayList<>();
+        for (int slot = 0; slot < styleCount; slot++) {
+            for (Operation operation : operations) {
+                int index = slot * OPERATION_COUNT + operation.ordinal();
+                long[] buckets = new long[BUCKET_COUNT];
+                long count = 0;
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    buckets[i] = sBuckets.get(index * BUCKET_COUNT + i);
+                    count += buckets[i];
+                }
+                if (count > 0) {
+                    entries.add(new Entry(sStyleKeys[slot], operation, count,
+                            sTotalNanos.get(index), sMaxNanos.get(index), buckets));
+                }
+            }
+        }
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Long.compare(b.totalNanos, a.totalNanos);
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * 将 {@link #snapshot()} 以 tab 分隔的文本写入文件, 每行一条, 第一行为硬件层统计, 第二行为表头
+     */
+    public static void dump(@NonNull File file) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(file));
+        try {
+            writer.write("# layerPromotions=" + sLayerPromotionCount + " activeLayers=" + sActiveLayerCount + "\n");
+            writer.write("style\toperation\tcount\ttotalUs\tmaxUs\tp50Us\tp90Us\tp99Us\n");
+            for (Entry entry : snapshot()) {
+                writer.write(entry.toString());
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * 一个样式的一种操作的统计数据
+     */
+    public static final class Entry {
+        /**
+         * 样式, {@link JrvStyleSpec} 的文本格式, 超出数量上限的样式为 "other"
+         */
+        @NonNull
+        public final String styleKey;
+        @NonNull
+        public final Operation operation;
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+        /**
+         * 每个桶的次数, 划分见 {@link #BUCKET_COUNT}
+         */
+        @NonNull
+        public final long[] buckets;
+
+        Entry(@NonNull String styleKey, @NonNull Operation operation, long count, long totalNanos, long maxNanos,
+              @NonNull long[] buckets) {
+            this.styleKey = styleKey;
+            this.operation = operation;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+        }
+
+        /**
+         * @param fraction 如 0.9f
+         * @return 对应分位所在桶的上限, 单位是微秒
+         */
+        public long percentileMicros(float fraction) {
+            long target = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return i == BUCKET_COUNT - 1 ? maxNanos / 1000 : 1L << i;
+                }
+            }
+            return maxNanos / 1000;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return styleKey + '\t' + operation + '\t' + count + '\t' + totalNanos / 1000 + '\t' + maxNanos / 1000
+                    + '\t' + percentileMicros(0.5f) + '\t' + percentileMicros(0.9f) + '\t' + percentileMicros(0.99f);
+        }
+    }
+}
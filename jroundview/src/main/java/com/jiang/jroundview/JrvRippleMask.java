@@ -0,0 +1,63 @@
+package com.jiang.jroundview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 水波纹的遮罩, 直接使用 {@link JrvDrawable} 当前计算出的圆角或参数化形状的轮廓绘制, 不保存自己的形状,
+ * 圆角、自适应圆角等变化后自动保持一致。
+ * <p>
+ * 四个圆角相同时直接绘制圆角矩形, 否则使用 {@link JrvShape#obtainPath} 中按大小与圆角缓存的轮廓, 绘制时不重新生成 Path。
+ */
+class JrvRippleMask extends Drawable {
+
+    private final JrvDrawable mShape;
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mRect = new RectF();
+
+    JrvRippleMask(JrvDrawable shape) {
+        mShape = shape;
+        mPaint.setColor(Color.WHITE);
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        Rect bounds = getBounds();
+        float[] radii = mShape.getResolvedRadii();
+        if (mShape.getShape() == null && JrvDrawable.isUniform(radii)) {
+            mRect.set(bounds);
+            canvas.drawRoundRect(mRect, radii[0], radii[0], mPaint);
+            return;
+        }
+        Path path = mShape.getShapePath();
+        if (path != null) {
+            int saveCount = canvas.save();
+            canvas.translate(bounds.left, bounds.top);
+            canvas.drawPath(path, mPaint);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -0,0 +1,484 @@
+package com.jiang.jroundview;
+
+import android.content.res.TypedArray;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.os.Looper;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * 参数化形状, 通过 jrv_shape 等属性设置: 优惠券(两侧半圆缺口)、聊天气泡(带尖角)、票据(两侧锯齿状的打孔边)。
+ * <p>
+ * <ul>
+ * <li>形状参数不可变, 按值比较。</li>
+ * <li>Path 按 (形状参数, 大小, 圆角, 内缩) 生成一次后放入进程级的缓存, 列表中复用的相同大小的 item 直接使用,
+ * 缓存中的 Path 不能修改。</li>
+ * </ul>
+ * 主线程查找时复用同一个 key, 其他线程(如在后台线程用 JrvSpecPainter 绘制到 Bitmap)每次分配新的 key。
+ */
+final class JrvShape {
+
+    static final int TYPE_RECTANGLE = 0;
+    static final int TYPE_COUPON = 1;
+    static final int TYPE_BUBBLE = 2;
+    static final int TYPE_TICKET = 3;
+
+    static final int SIDE_LEFT = 0;
+    static final int SIDE_TOP = 1;
+    static final int SIDE_RIGHT = 2;
+    static final int SIDE_BOTTOM = 3;
+
+    private static final int MAX_PATHS = 64;
+
+    /**
+     * {@link JrvUsageProfile} 预热生成、还没有被使用的轮廓, 第一次命中时再记录
+     */
+    private static final HashSet<Path> sReplayedPaths = new HashSet<>();
+    private static final LruCache<PathKey, Path> sPaths = new LruCache<PathKey, Path>(MAX_PATHS) {
+        @Override
+        protected void entryRemoved(boolean evicted, PathKey key, Path oldValue, Path newValue) {
+            synchronized (sReplayedPaths) {
+                sReplayedPaths.remove(oldValue);
+            }
+        }
+    };
+    /**
+     * 主线程查找时复用的 key, 命中时不分配内存, 只能在主线程使用
+     */
+    private static final PathKey sLookupKey = new PathKey();
+
+    static {
+        JrvMemory.register(new JrvMemory.Cache() {
+            @NonNull
+            @Override
+            public String getName() {
+                return "JrvShape";
+            }
+
+            @NonNull
+            @Override
+            public JrvMemory.Category getCategory() {
+                return JrvMemory.Category.PATH;
+            }
+
+            @Override
+            public int getEntryCount() {
+                return sPaths.size();
+            }
+
+            @Override
+            public long getEstimatedBytes() {
+                // 合并后的轮廓, 票据的锯齿边较多
+                return sPaths.size() * 2048L;
+            }
+
+            @Override
+            public void trim(float keepFraction) {
+                sPaths.trimToSize((int) (MAX_PATHS * keepFraction));
+            }
+        });
+    }
+
+    final int type;
+    /**
+     * 优惠券缺口、票据锯齿的半径, 单位是px
+     */
+    final float notchRadius;
+    /**
+     * 优惠券缺口圆心相对高度的位置, 0 为顶部, 1 为底部
+     */
+    final float notchPosition;
+    /**
+     * 票据相邻锯齿之间的距离, 单位是px
+     */
+    final float notchGap;
+    /**
+     * 气泡尖角所在的边, {@link #SIDE_LEFT} 等
+     */
+    final int tailSide;
+    final float tailWidth;
+    final float tailHeight;
+    /**
+     * 尖角相对所在边起点(左边、右边为顶部, 上边、下边为左侧)的距离, 单位是px
+     */
+    final float tailOffset;
+
+    JrvShape(int type, float notchRadius, float notchPosition, float notchGap,
+             int tailSide, float tailWidth, float tailHeight, float tailOffset) {
+        this.type = type;
+        this.notchRadius = notchRadius;
+        this.notchPosition = notchPosition;
+        this.notchGap = notchGap;
+        this.tailSide = tailSide;
+        this.tailWidth = tailWidth;
+        this.tailHeight = tailHeight;
+        this.tailOffset = tailOffset;
+    }
+
+    /**
+     * @return 没有设置 jrv_shape 或为矩形时返回 null
+     */
+    @Nullable
+    static JrvShape fromTypedArray(TypedArray typedArray) {
+        int type = typedArray.getInt(R.styleable.JrvTextView_jrv_shape, TYPE_RECTANGLE);
+        if (type == TYPE_RECTANGLE) {
+            return null;
+        }
+        float notchRadius = typedArray.getDimension(R.styleable.JrvTextView_jrv_shapeNotchRadius, 0);
+        return new JrvShape(type,
+                notchRadius,
+                typedArray.getFraction(R.styleable.JrvTextView_jrv_shapeNotchPosition, 1, 1, 0.5f),
+                typedArray.getDimension(R.styleable.JrvTextView_jrv_shapeNotchGap, notchRadius),
+                typedArray.getInt(R.styleable.JrvTextView_jrv_shapeTailSide, SIDE_LEFT),
+                typedArray.getDimension(R.styleable.JrvTextView_jrv_shapeTailWidth, 0),
+                typedArray.getDimension(R.styleable.JrvTextView_jrv_shapeTailHeight, 0),
+                typedArray.getDimension(R.styleable.JrvTextView_jrv_shapeTailOffset, 0));
+    }
+
+    /**
+     * 获取缓存的轮廓, 坐标相对 (0, 0), 不能修改返回的 Path
+     *
+     * @param shape 为 null 时为圆角矩形
+     * @param radii 长度为 8, 顺序同 {@link android.graphics.drawable.GradientDrawable#setCornerRadii(float[])}
+     * @param inset 四边内缩的距离, 绘制描边时为描边宽度的一半
+     */
+    @NonNull
+    static Path obtainPath(@Nullable JrvShape shape, int width, int height, float[] radii, float inset) {
+        boolean mainThread = Looper.myLooper() == Looper.getMainLooper();
+        PathKey lookupKey = mainThread ? sLookupKey : new PathKey();
+        lookupKey.set(shape, width, height, radii, inset);
+        Path path = sPaths.get(lookupKey);
+        if (path == null) {
+            RectF rect = new RectF(inset, inset, width - inset, height - inset);
+            path = new Path();
+            if (shape == null) {
+                path.addRoundRect(rect, radii, Path.Direction.CW);
+            } else {
+                shape.buildPath(path, rect, radii);
+            }
+            PathKey key = lookupKey;
+            if (mainThread) {
+                key = new PathKey();
+                key.set(shape, width, height, radii, inset);
+            }
+            sPaths.put(key, path);
+            if (shape != null && JrvUsageProfile.isReplaying()) {
+                synchronized (sReplayedPaths) {
+                    sReplayedPaths.add(path);
+                }
+            } else {
+                JrvUsageProfile.recordPath(shape, width, height, radii, inset);
+            }
+        } else if (!sReplayedPaths.isEmpty()) {
+            boolean replayed;
+            synchronized (sReplayedPaths) {
+                replayed = sReplayedPaths.remove(path);
+            }
+            if (replayed) {
+                JrvUsageProfile.recordPath(shape, width, height, radii, inset);
+            }
+        }
+        if (mainThread) {
+            sLookupKey.shape = null;
+        }
+        return path;
+    }
+
+    /**
+     * 以 ',' 分隔的参数, 可由 {@link #decode(String)} 还原
+     */
+    @NonNull
+    String encode() {
+        return type + "," + notchRadius + "," + notchPosition + "," + notchGap + ","
+                + tailSide + "," + tailWidth + "," + tailHeight + "," + tailOffset;
+    }
+
+    /**
+     * @throws IllegalArgumentException 格式错误
+     */
+    @NonNull
+    static JrvShape decode(@NonNull String text) {
+        String[] values = text.split(",");
+        if (values.length != 8) {
+            throw new IllegalArgumentException("Invalid shape: " + text);
+        }
+        return new JrvShape(Integer.parseInt(values[0]), Float.parseFloat(values[1]), Float.parseFloat(values[2]),
+                Float.parseFloat(values[3]), Integer.parseInt(values[4]), Float.parseFloat(values[5]),
+                Float.parseFloat(values[6]), Float.parseFloat(values[7]));
+    }
+
+    private void buildPath(Path path, RectF rect, float[] radii) {
+        switch (type) {
+            case TYPE_COUPON: {
+                path.addRoundRect(rect, radii, Path.Direction.CW);
+                Path notches = new Path();
+                float cy = rect.top + rect.height() * notchPosition;
+                notches.addCircle(rect.left, cy, notchRadius, Path.Direction.CW);
+                notches.addCircle(rect.right, cy, notchRadius, Path.Direction.CW);
+                path.op(notches, Path.Op.DIFFERENCE);
+                break;
+            }
+            case TYPE_TICKET: {
+                path.addRoundRect(rect, radii, Path.Direction.CW);
+                float pitch = notchRadius * 2 + notchGap;
+                // 锯齿不进入上下两个圆角
+                float available = rect.height() - Math.max(radii[1], radii[3]) - Math.max(radii[5], radii[7]);
+                int count = notchRadius > 0 && pitch > 0 ? (int) ((available + notchGap) / pitch) : 0;
+                if (count > 0) {
+                    Path notches = new Path();
+                    float cy = rect.centerY() - (count - 1) * pitch / 2;
+                    for (int i = 0; i < count; i++, cy += pitch) {
+                        notches.addCircle(rect.left, cy, notchRadius, Path.Direction.CW);
+                        notches.addCircle(rect.right, cy, notchRadius, Path.Direction.CW);
+                    }
+                    path.op(notches, Path.Op.DIFFERENCE);
+                }
+                break;
+            }
+            case TYPE_BUBBLE: {
+                RectF body = new RectF();
+                getBodyRect(rect, body);
+                path.addRoundRect(body, radii, Path.Direction.CW);
+                if (tailWidth > 0 && tailHeight > 0) {
+                    path.op(buildTail(rect, body), Path.Op.UNION);
+                }
+                break;
+            }
+            default:
+                path.addRoundRect(rect, radii, Path.Direction.CW);
+                break;
+        }
+    }
+
+    /**
+     * 尖角为三角形, 底边在气泡主体的边上, 顶点在 bounds 的边上并与底边中点对齐
+     */
+    private Path buildTail(RectF rect, RectF body) {
+        Path tail = new Path();
+        float start;
+        float end;
+        switch (tailSide) {
+            case SIDE_TOP:
+                start = body.left + tailOffset;
+                end = Math.min(start + tailWidth, body.right);
+                tail.moveTo(start, body.top);
+                tail.lineTo((start + end) / 2, rect.top);
+                tail.lineTo(end, body.top);
+                break;
+            case SIDE_RIGHT:
+                start = body.top + tailOffset;
+                end = Math.min(start + tailWidth, body.bottom);
+                tail.moveTo(body.right, start);
+                tail.lineTo(rect.right, (start + end) / 2);
+                tail.lineTo(body.right, end);
+                break;
+            case SIDE_BOTTOM:
+                start = body.left + tailOffset;
+                end = Math.min(start + tailWidth, body.right);
+                tail.moveTo(start, body.bottom);
+                tail.lineTo((start + end) / 2, rect.bottom);
+                tail.lineTo(end, body.bottom);
+                break;
+            default:
+                start = body.top + tailOffset;
+                end = Math.min(start + tailWidth, body.bottom);
+                tail.moveTo(body.left, start);
+                tail.lineTo(rect.left, (start + end) / 2);
+                tail.lineTo(body.left, end);
+                break;
+        }
+        tail.close();
+        return tail;
+    }
+
+    /**
+     * 判断点是否在形状内: 圆角矩形主体去掉缺口圆, 或加上尖角三角形, 不创建 Path 或 Region
+     *
+     * @param x     相对 (0, 0) 的坐标
+     * @param radii 长度为 8, 顺序同 {@link android.graphics.drawable.GradientDrawable#setCornerRadii(float[])}
+     */
+    boolean contains(float x, float y, int width, int height, float[] radii) {
+        switch (type) {
+            case TYPE_COUPON: {
+                if (!JrvDrawable.isInRoundRect(x, y, 0, 0, width, height, radii)) {
+                    return false;
+                }
+                float cy = height * notchPosition;
+                return !isInNotch(x, y, 0, cy) && !isInNotch(x, y, width, cy);
+            }
+            case TYPE_TICKET: {
+                if (!JrvDrawable.isInRoundRect(x, y, 0, 0, width, height, radii)) {
+                    return false;
+                }
+                float pitch = notchRadius * 2 + notchGap;
+                float available = height - Math.max(radii[1], radii[3]) - Math.max(radii[5], radii[7]);
+                int count = notchRadius > 0 && pitch > 0 ? (int) ((available + notchGap) / pitch) : 0;
+                if (count <= 0) {
+                    return true;
+                }
+                // 与 buildPath 相同的锯齿位置, 只需要判断最近的一个
+                float firstCy = height / 2f - (count - 1) * pitch / 2;
+                int index = Math.max(0, Math.min(count - 1, Math.round((y - firstCy) / pitch)));
+                float cy = firstCy + index * pitch;
+                return !isInNotch(x, y, 0, cy) && !isInNotch(x, y, width, cy);
+            }
+            case TYPE_BUBBLE:
+                return containsBubble(x, y, width, height, radii);
+            default:
+                return JrvDrawable.isInRoundRect(x, y, 0, 0, width, height, radii);
+        }
+    }
+
+    private boolean isInNotch(float x, float y, float cx, float cy) {
+        float dx = x - cx;
+        float dy = y - cy;
+        return dx * dx + dy * dy < notchRadius * notchRadius;
+    }
+
+    /**
+     * 与 {@link #getBodyRect(RectF, RectF)}、{@link #buildTail(RectF, RectF)} 相同的主体与尖角
+     */
+    private boolean containsBubble(float x, float y, int width, int height, float[] radii) {
+        float left = tailSide == SIDE_LEFT ? tailHeight : 0;
+        float top = tailSide == SIDE_TOP ? tailHeight : 0;
+        float right = tailSide == SIDE_RIGHT ? width - tailHeight : width;
+        float bottom = tailSide == SIDE_BOTTOM ? height - tailHeight : height;
+        if (JrvDrawable.isInRoundRect(x, y, left, top, right, bottom, radii)) {
+            return true;
+        }
+        if (tailWidth <= 0 || tailHeight <= 0) {
+            return false;
+        }
+        float start;
+        float end;
+        switch (tailSide) {
+            case SIDE_TOP:
+                start = left + tailOffset;
+                end = Math.min(start + tailWidth, right);
+                return isInTriangle(x, y, start, top, (start + end) / 2, 0, end, top);
+            case SIDE_RIGHT:
+                start = top + tailOffset;
+                end = Math.min(start + tailWidth, bottom);
+                return isInTriangle(x, y, right, start, width, (start + end) / 2, right, end);
+            case SIDE_BOTTOM:
+                start = left + tailOffset;
+                end = Math.min(start + tailWidth, right);
+                return isInTriangle(x, y, start, bottom, (start + end) / 2, height, end, bottom);
+            default:
+                start = top + tailOffset;
+                end = Math.min(start + tailWidth, bottom);
+                return isInTriangle(x, y, left, start, 0, (start + end) / 2, left, end);
+        }
+    }
+
+    private static boolean isInTriangle(float x, float y, float x1, float y1, float x2, float y2, float x3, float y3) {
+        float d1 = (x - x2) * (y1 - y2) - (x1 - x2) * (y - y2);
+        float d2 = (x - x3) * (y2 - y3) - (x2 - x3) * (y - y3);
+        float d3 = (x - x1) * (y3 - y1) - (x3 - x1) * (y - y1);
+        boolean hasNegative = d1 < 0 || d2 < 0 || d3 < 0;
+        boolean hasPositive = d1 > 0 || d2 > 0 || d3 > 0;
+        return !(hasNegative && hasPositive);
+    }
+
+    /**
+     * 不包括气泡尖角的主体部分, 其他形状为整个矩形
+     */
+    void getBodyRect(RectF rect, RectF out) {
+        out.set(rect);
+        if (type != TYPE_BUBBLE) {
+            return;
+        }
+        switch (tailSide) {
+            case SIDE_TOP:
+                out.top += tailHeight;
+                break;
+            case SIDE_RIGHT:
+                out.right -= tailHeight;
+                break;
+            case SIDE_BOTTOM:
+                out.bottom -= tailHeight;
+                break;
+            default:
+                out.left += tailHeight;
+                break;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JrvShape)) {
+            return false;
+        }
+        JrvShape that = (JrvShape) o;
+        return type == that.type && notchRadius == that.notchRadius && notchPosition == that.notchPosition
+                && notchGap == that.notchGap && tailSide == that.tailSide && tailWidth == that.tailWidth
+                && tailHeight == that.tailHeight && tailOffset == that.tailOffset;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type;
+        result = 31 * result + Float.floatToIntBits(notchRadius);
+        result = 31 * result + Float.floatToIntBits(notchPosition);
+        result = 31 * result + Float.floatToIntBits(notchGap);
+        result = 31 * result + tailSide;
+        result = 31 * result + Float.floatToIntBits(tailWidth);
+        result = 31 * result + Float.floatToIntBits(tailHeight);
+        result = 31 * result + Float.floatToIntBits(tailOffset);
+        return result;
+    }
+
+    private static final class PathKey {
+        JrvShape shape;
+        int width;
+        int height;
+        /**
+         * 8 个值, 顺序同 {@link android.graphics.drawable.GradientDrawable#setCornerRadii(float[])}, 椭圆圆角的轮廓不同
+         */
+        final float[] radii = new float[8];
+        float inset;
+
+        void set(JrvShape shape, int width, int height, float[] radii, float inset) {
+            this.shape = shape;
+            this.width = width;
+            this.height = height;
+            System.arraycopy(radii, 0, this.radii, 0, 8);
+            this.inset = inset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PathKey)) {
+                return false;
+            }
+            PathKey that = (PathKey) o;
+            return width == that.width && height == that.height && inset == that.inset
+                    && Arrays.equals(radii, that.radii)
+                    && (shape == null ? that.shape == null : shape.equals(that.shape));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shape == null ? 0 : shape.hashCode();
+            result = 31 * result + width;
+            result = 31 * result + height;
+            for (float radius : radii) {
+                result = 31 * result + Float.floatToIntBits(radius);
+            }
+            result = 31 * result + Float.floatToIntBits(inset);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.jiang.jroundview;
+
+import android.graphics.Canvas;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+/**
+ * 在任意 {@link Canvas} 上按 {@link JrvStyleSpec} 绘制背景, 供不使用 Jrv 控件的场景(如自定义 View、Compose 的 drawBehind)使用,
+ * 与 Jrv 控件使用同一套形状计算。
+ * <p>
+ * 相同的 (spec, 屏幕密度) 共享一个 {@link JrvDrawable}, 绘制时只更新 bounds, 大小不变时不重新计算圆角。
+ * 只能在主线程调用。
+ * <pre>
+ * // Compose
+ * Modifier.drawBehind {
+ *     drawIntoCanvas { JrvSpecPainter.draw(it.nativeCanvas, spec, density, 0, 0, size.width.toInt(), size.height.toInt()) }
+ * }
+ * </pre>
+ */
+public final class JrvSpecPainter {
+
+    private static final int MAX_SIZE = 64;
+
+    private static final LruCache<Key, JrvDrawable> sDrawables = new LruCache<>(MAX_SIZE);
+    /**
+     * 查找时复用的 key, 命中时不分配内存, 因此所有入口只能在主线程调用
+     */
+    private static final Key sLookupKey = new Key(null, 0);
+
+    static {
+        JrvMemory.register(new JrvMemory.Cache() {
+            @NonNull
+            @Override
+            public String getName() {
+                return "JrvSpecPainter";
+            }
+
+            @NonNull
+            @Override
+            public JrvMemory.Category getCategory() {
+                return JrvMemory.Category.DRAWABLE;
+            }
+
+            @Override
+            public int getEntryCount() {
+                return sDrawables.size();
+            }
+
+            @Override
+            public long getEstimatedBytes() {
+                // GradientDrawable 及其 GradientState、Paint
+                return sDrawables.size() * 1024L;
+            }
+
+            @Override
+            public void trim(float keepFraction) {
+                sDrawables.trimToSize((int) (MAX_SIZE * keepFraction));
+            }
+        });
+    }
+
+    private JrvSpecPainter() {
+    }
+
+    /**
+     * 只能在主线程调用: 查找缓存时复用同一个静态的 key, 共享的 Drawable 也会在绘制时修改 bounds
+     *
+     * @param density 屏幕密度, 用于将 spec 中的 dp 换算为 px
+     */
+    @MainThread
+    public static void draw(@NonNull Canvas canvas, @NonNull JrvStyleSpec spec, float density,
+                            int left, int top, int right, int bottom) {
+        if (right <= left || bottom <= top) {
+            return;
+        }
+        JrvDrawable drawable = obtain(spec, density);
+        drawable.setBounds(left, top, right, bottom);
+        drawable.draw(canvas);
+    }
+
+    @NonNull
+    static JrvDrawable obtain(@NonNull JrvStyleSpec spec, float density) {
+        spec = spec.intern();
+        sLookupKey.spec = spec;
+        sLookupKey.density = density;
+        JrvDrawable drawable = sDrawables.get(sLookupKey);
+        sLookupKey.spec = null;
+        if (drawable == null) {
+            drawable = JrvDrawable.fromSpec(spec, density);
+            sDrawables.put(new Key(spec, density), drawable);
+        }
+        return drawable;
+    }
+
+    private static final class Key {
+        JrvStyleSpec spec;
+        float density;
+
+        Key(JrvStyleSpec spec, float density) {
+            this.spec = spec;
+            this.density = density;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            // spec 已 intern, 按实例比较
+            return spec == that.spec && density == that.density;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(spec) + Float.floatToIntBits(density);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.jiang.jroundview;
+
+import android.content.Context;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * 编译期生成的样式表, 由 jrv-specs.gradle 扫描 layout 生成。
+ * <p>
+ * layout 中 jrv_* 属性全部为字面值(颜色、dp、boolean、枚举)且只使用 {@link JrvStyleSpec} 能表示的属性的控件,
+ * 编译时被转换为 spec 文本并按属性签名排序; 运行时按 xml 属性的签名二分查找到下标, 直接由 spec 创建背景, 不再读取 TypedArray。
+ * 引用了资源或主题属性、使用了 style 或主题中定义了 JrvStyle 的控件查找不到, 按原方式解析。
+ * <pre>
+ * // app/build.gradle
+ * apply from: "${rootDir}/jroundview/jrv-specs.gradle"
+ * // Application.onCreate
+ * JrvSpecTable.install(JrvGeneratedSpecs.SIGNATURES, JrvGeneratedSpecs.SPECS);
+ * </pre>
+ */
+public final class JrvSpecTable {
+
+    private static final String ATTR_PREFIX = "jrv_";
+    /**
+     * 能由 {@link JrvStyleSpec} 表示的属性, 按字符串顺序排序, 与 jrv-specs.gradle 中的列表一致
+     */
+    private static final String[] SPEC_ATTRS = {
+            "jrv_backgroundColor", "jrv_borderColor", "jrv_borderWidth", "jrv_gradientColorEnd",
+            "jrv_gradientColorMiddle", "jrv_gradientColorStart", "jrv_gradientOrientation",
+            "jrv_isRadiusAdjustBounds", "jrv_radius", "jrv_radiusBottomLeft", "jrv_radiusBottomRight",
+            "jrv_radiusTopLeft", "jrv_radiusTopRight"
+    };
+
+    private static volatile String[] sSignatures;
+    private static volatile String[] sSpecs;
+    /**
+     * 按下标延迟解析的 spec
+     */
+    private static volatile JrvStyleSpec[] sParsed;
+    /**
+     * 主线程解析 defStyleAttr 时复用, 其他线程(如 AsyncLayoutInflater)每次分配
+     */
+    private static final TypedValue sTypedValue = new TypedValue();
+
+    private JrvSpecTable() {
+    }
+
+    /**
+     * @param signatures 按字符串顺序排序的属性签名
+     * @param specs      与 signatures 一一对应的 {@link JrvStyleSpec} 文本
+     */
+    public static void install(@NonNull String[] signatures, @NonNull String[] specs) {
+        if (signatures.length != specs.length) {
+            throw new IllegalArgumentException("signatures and specs must have the same length");
+        }
+        sParsed = new JrvStyleSpec[specs.length];
+        sSpecs = specs;
+        sSignatures = signatures;
+    }
+
+    /**
+     * @return 没有安装样式表或没有匹配的条目时返回 null
+     */
+    @Nullable
+    static JrvStyleSpec lookup(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        String[] signatures = sSignatures;
+        if (signatures == null || attrs == null || attrs.getStyleAttribute() != 0) {
+            return null;
+        }
+        String signature = signatureOf(attrs);
+        if (signature == null) {
+            return null;
+        }
+        int index = Arrays.binarySearch(signatures, signature);
+        if (index < 0) {
+            return null;
+        }
+        if (defStyleAttr != 0) {
+            TypedValue typedValue = Looper.myLooper() == Looper.getMainLooper() ? sTypedValue : new TypedValue();
+            if (context.getTheme().resolveAttribute(defStyleAttr, typedValue, true)) {
+                // 主题中的默认样式可能设置了其他 jrv_* 属性
+                return null;
+            }
+        }
+        JrvStyleSpec[] parsed = sParsed;
+        JrvStyleSpec spec = parsed[index];
+        if (spec == null) {
+            spec = JrvStyleSpec.valueOf(sSpecs[index]);
+            parsed[index] = spec;
+        }
+        return spec;
+    }
+
+    /**
+     * 按属性名排序的 "name=value" 以 ';' 连接, value 为编译后的属性值转为字符串的结果(如 "#ffff0000"、"12.0dip"),
+     * 与 jrv-specs.gradle 中的规则一致
+     *
+     * @return 没有 jrv_* 属性或含有不能由 spec 表示的属性时返回 null, 不分配内存
+     */
+    @Nullable
+    static String signatureOf(@NonNull AttributeSet attrs) {
+        int attributeCount = attrs.getAttributeCount();
+        int count = 0;
+        for (int i = 0; i < attributeCount; i++) {
+            String name = attrs.getAttributeName(i);
+            if (name != null && name.startsWith(ATTR_PREFIX)) {
+                if (Arrays.binarySearch(SPEC_ATTRS, name) < 0) {
+                    return null;
+                }
+                count++;
+            }
+        }
+        if (count == 0 || count > SPEC_ATTRS.length) {
+            return null;
+        }
+        // 只对命中候选的属性排序, 按属性名插入排序
+        int[] order = new int[count];
+        count = 0;
+        for (int i = 0; i < attributeCount; i++) {
+            String name = attrs.getAttributeName(i);
+            if (name != null && name.startsWith(ATTR_PREFIX)) {
+                int j = count++;
+                while (j > 0 && attrs.getAttributeName(order[j - 1]).compareTo(name) > 0) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = i;
+            }
+        }
+        StringBuilder signature = new StringBuilder(count * 24);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                signature.append(';');
+            }
+            signature.append(attrs.getAttributeName(order[i])).append('=').append(attrs.getAttributeValue(order[i]));
+        }
+        return signature.toString();
+    }
+}
@@ -0,0 +1,249 @@
+package com.jiang.jroundview;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.util.LruCache;
+import android.util.TypedValue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 进程级的背景样式缓存, 旋转屏幕、切换夜间模式、分屏等导致 Activity 重建时, 相同 xml 属性的 Jrv 控件直接复制缓存的样式,
+ * 不再读取与解析 jrv_* 属性。
+ * <p>
+ * <ul>
+ * <li>key 为 xml 中 jrv_* 属性的原始值, 值中引用了主题属性(?attr)的控件不缓存。</li>
+ * <li>每个条目记录创建时的屏幕密度、字体缩放、uiMode 以及属性值所依赖的其他配置(如 values-land 中的尺寸),
+ * 这些配置变化后条目失效, 重新解析后替换。</li>
+ * <li>使用了 style、主题中的 JrvStyle 或 jrv_layers 的控件, style 中可能引用主题属性, 默认不缓存,
+ * 确认没有引用时可通过 {@link #setCacheStyles(boolean)} 开启。</li>
+ * </ul>
+ * 默认关闭, 通过 {@link #setEnabled(boolean)} 开启。
+ */
+public final class JrvStateCache {
+
+    private static final int MAX_SIZE = 128;
+    /**
+     * 不依赖 TypedArray 报告也总是校验的配置: dp 与 sp 换算、夜间模式
+     */
+    private static final int ALWAYS_CHECKED_CONFIGS =
+            ActivityInfo.CONFIG_DENSITY | ActivityInfo.CONFIG_FONT_SCALE | ActivityInfo.CONFIG_UI_MODE;
+
+    private static volatile boolean sEnabled;
+    private static volatile boolean sCacheStyles;
+    private static final LruCache<String, Entry> sCache = new LruCache<>(MAX_SIZE);
+    /**
+     * 排序后的 jrv_* 属性 id, 用于二分查找
+     */
+    private static final int[] sJrvAttrs = sortedJrvAttrs();
+
+    static {
+        JrvMemory.register(new JrvMemory.Cache() {
+            @NonNull
+            @Override
+            public String getName() {
+                return "JrvStateCache";
+            }
+
+            @NonNull
+            @Override
+            public JrvMemory.Category getCategory() {
+                return JrvMemory.Category.SHARED_STATE;
+            }
+
+            @Override
+            public int getEntryCount() {
+                return sCache.size();
+            }
+
+            @Override
+            public long getEstimatedBytes() {
+                long bytes = 0;
+                for (Map.Entry<String, Entry> entry : sCache.snapshot().entrySet()) {
+                    // key 的字符 + 样式与配置对象
+                    bytes += entry.getKey().length() * 2L + 512;
+                }
+                return bytes;
+            }
+
+            @Override
+            public void trim(float keepFraction) {
+                sCache.trimToSize((int) (MAX_SIZE * keepFraction));
+            }
+        });
+    }
+
+    private JrvStateCache() {
+    }
+
+    /**
+     * 开启或关闭缓存, 默认关闭, 关闭时清空
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+        if (!enabled) {
+            sCache.evictAll();
+        }
+    }
+
+    /**
+     * 是否缓存使用了 style 的控件, 默认关闭
+     */
+    public static void setCacheStyles(boolean cacheStyles) {
+        sCacheStyles = cacheStyles;
+    }
+
+    /**
+     * @return 不能缓存时返回 null
+     */
+    @Nullable
+    static String keyOf(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        if (!sEnabled) {
+            return null;
+        }
+        // 可能在 AsyncLayoutInflater 等后台线程创建 View, 不复用静态对象; 与读取属性相比分配的开销可以忽略
+        StringBuilder key = new StringBuilder(64);
+        int defStyleRes = 0;
+        if (defStyleAttr != 0) {
+            TypedValue value = new TypedValue();
+            if (context.getTheme().resolveAttribute(defStyleAttr, value, true)) {
+                defStyleRes = value.resourceId;
+            }
+        }
+        int styleRes = attrs == null ? 0 : attrs.getStyleAttribute();
+        if ((defStyleRes != 0 || styleRes != 0) && !sCacheStyles) {
+            return null;
+        }
+        key.append(defStyleRes).append('/').append(styleRes);
+        if (attrs != null) {
+            for (int i = 0; i < attrs.getAttributeCount(); i++) {
+                int nameRes = attrs.getAttributeNameResource(i);
+                if (!isJrvAttr(nameRes)) {
+                    continue;
+                }
+                String value = attrs.getAttributeValue(i);
+                if (value != null && value.startsWith("?")) {
+                    return null;
+                }
+                if (nameRes == R.attr.jrv_layers && !sCacheStyles) {
+                    return null;
+                }
+                key.append(';').append(nameRes).append('=').append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isJrvAttr(int nameRes) {
+        return nameRes != 0 && Arrays.binarySearch(sJrvAttrs, nameRes) >= 0;
+    }
+
+    private static int[] sortedJrvAttrs() {
+        int[] attrs = R.styleable.JrvTextView.clone();
+        Arrays.sort(attrs);
+        return attrs;
+    }
+
+    /**
+     * @return 配置仍然有效的条目, 没有时返回 null
+     */
+    @Nullable
+    static Entry get(@NonNull String key, @NonNull Resources resources) {
+        Entry entry = sCache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if ((entry.configuration.diff(resources.getConfiguration()) & entry.changingConfigs) != 0) {
+            sCache.remove(key);
+            return null;
+        }
+        String profileLine = entry.profileLine;
+        if (profileLine != null) {
+            entry.profileLine = null;
+            JrvUsageProfile.recordLine(profileLine);
+        }
+        return entry;
+    }
+
+    /**
+     * 缓存刚从 typedArray 创建的背景, 需要在修改背景之前调用
+     */
+    static void put(@NonNull String key, @NonNull Resources resources, @NonNull JrvDrawable drawable,
+                    @NonNull TypedArray typedArray) {
+        int changingConfigs;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            changingConfigs = typedArray.getChangingConfigurations() | ALWAYS_CHECKED_CONFIGS;
+        } else {
+            // 无法得知属性值依赖的配置, 任何配置变化都失效
+            changingConfigs = 0xFFFFFFFF;
+        }
+        boolean hasExtras = hasExtras(typedArray);
+        sCache.put(key, new Entry(drawable.copy(), hasExtras,
+                new Configuration(resources.getConfiguration()), changingConfigs));
+        JrvUsageProfile.recordStateCacheEntry(key, drawable, hasExtras, changingConfigs, resources);
+    }
+
+    /**
+     * 使用上次运行记录的样式预先填充, 已有的条目不覆盖, 见 {@link JrvUsageProfile}
+     *
+     * @param profileLine 记录文件中的行, 第一次命中时重新记录
+     */
+    static void prewarm(@NonNull String key, @NonNull JrvDrawable template, boolean hasExtras,
+                        @NonNull Resources resources, int changingConfigs, @NonNull String profileLine) {
+        if (!sEnabled || sCache.get(key) != null) {
+            return;
+        }
+        Entry entry = new Entry(template, hasExtras, new Configuration(resources.getConfiguration()), changingConfigs);
+        entry.profileLine = profileLine;
+        sCache.put(key, entry);
+    }
+
+    /**
+     * 是否设置了背景以外的属性(角标、图标), 有时命中缓存后仍需读取属性
+     */
+    private static boolean hasExtras(TypedArray typedArray) {
+        return typedArray.hasValue(R.styleable.JrvTextView_jrv_badgeText)
+                || typedArray.hasValue(R.styleable.JrvTextView_jrv_badgeColor)
+                || typedArray.hasValue(R.styleable.JrvTextView_jrv_iconStart)
+                || typedArray.hasValue(R.styleable.JrvTextView_jrv_iconEnd)
+                || typedArray.hasValue(R.styleable.JrvTextView_jrv_iconTint)
+                || typedArray.hasValue(R.styleable.JrvTextView_jrv_iconSize);
+    }
+
+    static final class Entry {
+        /**
+         * 不会被任何 View 使用的样式模板, 每次命中时复制
+         */
+        private final JrvDrawable template;
+        final boolean hasExtras;
+        private final Configuration configuration;
+        private final int changingConfigs;
+        /**
+         * 预热后还没有被使用时为记录文件中的行, 第一次命中时记录并置空
+         */
+        private String profileLine;
+
+        Entry(JrvDrawable template, boolean hasExtras, Configuration configuration, int changingConfigs) {
+            this.template = template;
+            this.hasExtras = hasExtras;
+            this.configuration = configuration;
+            this.changingConfigs = changingConfigs;
+        }
+
+        @NonNull
+        JrvDrawable newDrawable() {
+            synchronized (template) {
+                return template.copy();
+            }
+        }
+    }
+}
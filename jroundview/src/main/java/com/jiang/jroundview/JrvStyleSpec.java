@@ -0,0 +1,806 @@
+package com.jiang.jroundview;
+
+import android.content.res.ColorStateList;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 不可变的样式描述, 用于服务端下发样式(背景色、渐变、描边、圆角)。
+ * <p>
+ * <ul>
+ * <li>文本格式: <code>bg:#FA3246;bc:#FFFFFF;bw:1;r:20</code>, 使用 {@link #parse(CharSequence)} 解析, {@link #encode()} 生成。</li>
+ * <li>二进制格式: {@link #writeTo(DataOutput)} / {@link #readFrom(DataInput)}。</li>
+ * <li>尺寸单位统一为 dp, 应用到 {@link JrvDrawable} 时再按 density 换算。</li>
+ * </ul>
+ * 文本格式的 key:
+ * <pre>
+ * bg  背景色               gc  渐变色, 逗号分隔          go  渐变方向, 同 jrv_gradientOrientation 的取值
+ * bc  描边颜色             bw  描边宽度
+ * r   统一圆角             rtl/rtr/rbr/rbl  左上/右上/右下/左下圆角
+ * ra  是否自适应圆角(1/0)
+ * </pre>
+ * 相同的样式通过 {@link #intern()} 指向同一个实例, 控件使用 {@link JrvTextView#setJrvStyleSpec(JrvStyleSpec)}
+ * 重复设置同一个样式时不会重复修改 Drawable; 相同样式的 View 共享同一组颜色对象, 每个 View 仍然有自己的 Drawable。
+ */
+public final class JrvStyleSpec implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int ORIENTATION_TOP_BOTTOM = 0;
+    public static final int ORIENTATION_TR_BL = 1;
+    public static final int ORIENTATION_RIGHT_LEFT = 2;
+    public static final int ORIENTATION_BR_TL = 3;
+    public static final int ORIENTATION_BOTTOM_TOP = 4;
+    public static final int ORIENTATION_BL_TR = 5;
+    public static final int ORIENTATION_LEFT_RIGHT = 6;
+    public static final int ORIENTATION_TL_BR = 7;
+
+    private static final int BINARY_VERSION = 1;
+    private static final int FLAG_BACKGROUND = 1;
+    private static final int FLAG_GRADIENT = 1 << 1;
+    private static final int FLAG_BORDER = 1 << 2;
+    private static final int FLAG_CORNERS = 1 << 3;
+    private static final int FLAG_ADJUST_BOUNDS = 1 << 4;
+
+    private static final int MAX_KEY_LENGTH = 4;
+    private static final int KEY_BG = ('b' << 8) | 'g';
+    private static final int KEY_GC = ('g' << 8) | 'c';
+    private static final int KEY_GO = ('g' << 8) | 'o';
+    private static final int KEY_BC = ('b' << 8) | 'c';
+    private static final int KEY_BW = ('b' << 8) | 'w';
+    private static final int KEY_R = 'r';
+    private static final int KEY_RA = ('r' << 8) | 'a';
+    private static final int KEY_RTL = ('r' << 16) | ('t' << 8) | 'l';
+    private static final int KEY_RTR = ('r' << 16) | ('t' << 8) | 'r';
+    private static final int KEY_RBR = ('r' << 16) | ('b' << 8) | 'r';
+    private static final int KEY_RBL = ('r' << 16) | ('b' << 8) | 'l';
+
+    /**
+     * intern 池, 不再被引用的样式会被自动回收
+     */
+    private static final WeakHashMap<JrvStyleSpec, WeakReference<JrvStyleSpec>> sInternPool = new WeakHashMap<>();
+    /**
+     * 最近解析过的样式文本, 服务端通常会重复下发相同的样式文本
+     */
+    private static final int PARSE_CACHE_SIZE = 128;
+    private static final LinkedHashMap<String, JrvStyleSpec> sParseCache =
+            new LinkedHashMap<String, JrvStyleSpec>(PARSE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, JrvStyleSpec> eldest) {
+                    if (size() > PARSE_CACHE_SIZE) {
+                        sReplayedTexts.remove(eldest.getKey());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+    /**
+     * {@link JrvUsageProfile} 重放时解析、还没有被使用的文本, 第一次命中时再记录, 与 sParseCache 使用同一个锁
+     */
+    private static final HashSet<String> sReplayedTexts = new HashSet<>();
+
+    static {
+        JrvMemory.register(new JrvMemory.Cache() {
+            @NonNull
+            @Override
+            public String getName() {
+                return "JrvStyleSpec intern pool";
+            }
+
+            @NonNull
+            @Override
+            public JrvMemory.Category getCategory() {
+                return JrvMemory.Category.SHARED_STATE;
+            }
+
+            @Override
+            public int getEntryCount() {
+                synchronized (sInternPool) {
+                    return sInternPool.size();
+                }
+            }
+
+            @Override
+            public long getEstimatedBytes() {
+                long bytes = 0;
+                synchronized (sInternPool) {
+                    for (JrvStyleSpec spec : sInternPool.keySet()) {
+                        // WeakHashMap.Entry + WeakReference
+                        bytes += 64 + spec.estimateBytes();
+                    }
+                }
+                return bytes;
+            }
+
+            @Override
+            public void trim(float keepFraction) {
+                // 弱引用, 不再使用的样式会被自动回收
+            }
+        });
+        JrvMemory.register(new JrvMemory.Cache() {
+            @NonNull
+            @Override
+            public String getName() {
+                return "JrvStyleSpec parse cache";
+            }
+
+            @NonNull
+            @Override
+            public JrvMemory.Category getCategory() {
+                return JrvMemory.Category.SHARED_STATE;
+            }
+
+            @Override
+            public int getEntryCount() {
+                synchronized (sParseCache) {
+                    return sParseCache.size();
+                }
+            }
+
+            @Override
+            public long getEstimatedBytes() {
+                long bytes = 0;
+                synchronized (sParseCache) {
+                    for (String text : sParseCache.keySet()) {
+                        // LinkedHashMap.Entry + String, spec 计入 intern pool
+                        bytes += 48 + 40 + text.length() * 2L;
+                    }
+                }
+                return bytes;
+            }
+
+            @Override
+            public void trim(float keepFraction) {
+                synchronized (sParseCache) {
+                    int keep = (int) (sParseCache.size() * keepFraction);
+                    Iterator<String> iterator = sParseCache.keySet().iterator();
+                    while (sParseCache.size() > keep && iterator.hasNext()) {
+                        sReplayedTexts.remove(iterator.next());
+                        iterator.remove();
+                    }
+                }
+            }
+        });
+    }
+
+    private final boolean mHasBackground;
+    private final int mBackgroundColor;
+    private final int[] mGradientColors;
+    private final int mGradientOrientation;
+    private final int mBorderColor;
+    private final float mBorderWidth;
+    private final float mRadius;
+    /**
+     * 左上、右上、右下、左下, 为 null 表示使用 mRadius
+     */
+    private final float[] mCornerRadii;
+    private final boolean mRadiusAdjustBounds;
+    private transient int mHash;
+    /**
+     * 应用到 {@link JrvDrawable} 时使用的颜色, 第一次使用时创建, 相同样式的所有 View 共享
+     */
+    private transient ColorStateList mBackgroundColorList;
+    private transient ColorStateList mBorderColorList;
+    /**
+     * {@link #encode()} 的结果, 第一次使用时生成, 同时作为 {@link JrvProfiler} 中的样式
+     */
+    private transient String mEncoded;
+
+    private JrvStyleSpec(Builder builder) {
+        mHasBackground = builder.hasBackground;
+        mBackgroundColor = builder.backgroundColor;
+        mGradientColors = builder.gradientColors == null ? null : builder.gradientColors.clone();
+        mGradientOrientation = builder.gradientOrientation;
+        mBorderColor = builder.borderColor;
+        mBorderWidth = builder.borderWidth;
+        mRadius = builder.radius;
+        mCornerRadii = builder.cornerRadii == null ? null : builder.cornerRadii.clone();
+        mRadiusAdjustBounds = builder.radiusAdjustBounds;
+    }
+
+    public boolean hasBackground() {
+        return mHasBackground;
+    }
+
+    @ColorInt
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    /**
+     * @return 渐变色, 没有渐变时为 null。返回的是内部数组, 不要修改
+     */
+    @Nullable
+    public int[] getGradientColors() {
+        return mGradientColors;
+    }
+
+    public int getGradientOrientation() {
+        return mGradientOrientation;
+    }
+
+    @ColorInt
+    public int getBorderColor() {
+        return mBorderColor;
+    }
+
+    /**
+     * @return 描边宽度, 单位是dp
+     */
+    public float getBorderWidth() {
+        return mBorderWidth;
+    }
+
+    /**
+     * @return 统一圆角, 单位是dp
+     */
+    public float getRadius() {
+        return mRadius;
+    }
+
+    /**
+     * @return 左上、右上、右下、左下圆角, 单位是dp, 没有单独设置时为 null。返回的是内部数组, 不要修改
+     */
+    @Nullable
+    public float[] getCornerRadii() {
+        return mCornerRadii;
+    }
+
+    public boolean isRadiusAdjustBounds() {
+        return mRadiusAdjustBounds;
+    }
+
+    /**
+     * 背景色对应的 ColorStateList, 同一个样式只创建一次, 只在主线程调用
+     */
+    @NonNull
+    ColorStateList getBackgroundColorList() {
+        if (mBackgroundColorList == null) {
+            mBackgroundColorList = ColorStateList.valueOf(mBackgroundColor);
+        }
+        return mBackgroundColorList;
+    }
+
+    /**
+     * 描边颜色对应的 ColorStateList, 同一个样式只创建一次, 只在主线程调用
+     */
+    @NonNull
+    ColorStateList getBorderColorList() {
+        if (mBorderColorList == null) {
+            mBorderColorList = ColorStateList.valueOf(mBorderColor);
+        }
+        return mBorderColorList;
+    }
+
+    /**
+     * 返回与当前样式相等的共享实例
+     */
+    @NonNull
+    public JrvStyleSpec intern() {
+        synchronized (sInternPool) {
+            WeakReference<JrvStyleSpec> ref = sInternPool.get(this);
+            JrvStyleSpec interned = ref == null ? null : ref.get();
+            if (interned == null) {
+                sInternPool.put(this, new WeakReference<>(this));
+                interned = this;
+            }
+            return interned;
+        }
+    }
+
+    /**
+     * 解析样式文本并返回共享实例, 相同的文本只解析一次
+     */
+    @NonNull
+    public static JrvStyleSpec valueOf(@NonNull String text) {
+        synchronized (sParseCache) {
+            JrvStyleSpec spec = sParseCache.get(text);
+            if (spec != null) {
+                if (!sReplayedTexts.isEmpty() && sReplayedTexts.remove(text)) {
+                    JrvUsageProfile.recordSpec(text);
+                }
+                return spec;
+            }
+        }
+        JrvStyleSpec spec = parse(text).intern();
+        boolean replayed = JrvUsageProfile.isReplaying();
+        synchronized (sParseCache) {
+            sParseCache.put(text, spec);
+            if (replayed) {
+                sReplayedTexts.add(text);
+            }
+        }
+        if (!replayed) {
+            JrvUsageProfile.recordSpec(text);
+        }
+        return spec;
+    }
+
+    /**
+     * 解析样式文本, 逐字符扫描, 不会产生中间字符串
+     *
+     * @throws IllegalArgumentException 文本格式错误
+     */
+    @NonNull
+    public static JrvStyleSpec parse(@NonNull CharSequence text) {
+        Builder builder = new Builder();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int keyEnd = i;
+            int key = 0;
+            while (keyEnd < length && text.charAt(keyEnd) != ':') {
+                char c = text.charAt(keyEnd);
+                // 已知的 key 都是不超过 3 个字符的 ASCII, 更长或非 ASCII 的 key 按未知处理, 避免折叠后与已知的 key 相同
+                key = key < 0 || keyEnd - i >= MAX_KEY_LENGTH || c > 0x7F ? -1 : (key << 8) | c;
+                keyEnd++;
+            }
+            if (keyEnd >= length) {
+                throw new IllegalArgumentException("Missing ':' at " + i + " in " + text);
+            }
+            int valueStart = keyEnd + 1;
+            int valueEnd = valueStart;
+            while (valueEnd < length && text.charAt(valueEnd) != ';') {
+                valueEnd++;
+            }
+            if (key == KEY_BG) {
+                builder.backgroundColor(parseColor(text, valueStart, valueEnd));
+            } else if (key == KEY_GC) {
+                builder.gradientColors = parseColors(text, valueStart, valueEnd);
+            } else if (key == KEY_GO) {
+                builder.gradientOrientation((int) parseFloat(text, valueStart, valueEnd));
+            } else if (key == KEY_BC) {
+                builder.borderColor = parseColor(text, valueStart, valueEnd);
+            } else if (key == KEY_BW) {
+                builder.borderWidth = parseFloat(text, valueStart, valueEnd);
+            } else if (key == KEY_R) {
+                builder.radius(parseFloat(text, valueStart, valueEnd));
+            } else if (key == KEY_RA) {
+                builder.radiusAdjustBounds(parseFloat(text, valueStart, valueEnd) != 0);
+            } else if (key == KEY_RTL) {
+                builder.corners()[0] = parseFloat(text, valueStart, valueEnd);
+            } else if (key == KEY_RTR) {
+                builder.corners()[1] = parseFloat(text, valueStart, valueEnd);
+            } else if (key == KEY_RBR) {
+                builder.corners()[2] = parseFloat(text, valueStart, valueEnd);
+            } else if (key == KEY_RBL) {
+                builder.corners()[3] = parseFloat(text, valueStart, valueEnd);
+            }
+            // 未知的 key 直接忽略, 兼容服务端新增的字段
+            i = valueEnd + 1;
+        }
+        return builder.build();
+    }
+
+    /**
+     * 生成文本格式, 可由 {@link #parse(CharSequence)} 还原
+     */
+    @NonNull
+    public String encode() {
+        String encoded = mEncoded;
+        if (encoded == null) {
+            encoded = encodeText();
+            mEncoded = encoded;
+        }
+        return encoded;
+    }
+
+    private String encodeText() {
+        StringBuilder sb = new StringBuilder(64);
+        if (mHasBackground) {
+            appendColor(sb.append("bg:"), mBackgroundColor).append(';');
+        }
+        if (mGradientColors != null) {
+            sb.append("gc:");
+            for (int i = 0; i < mGradientColors.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                appendColor(sb, mGradientColors[i]);
+            }
+            sb.append(";go:").append(mGradientOrientation).append(';');
+        }
+        if (mBorderWidth > 0) {
+            appendColor(sb.append("bc:"), mBorderColor).append(';');
+            appendFloat(sb.append("bw:"), mBorderWidth).append(';');
+        }
+        if (mRadiusAdjustBounds) {
+            sb.append("ra:1;");
+        } else if (mCornerRadii != null) {
+            appendFloat(sb.append("rtl:"), mCornerRadii[0]).append(';');
+            appendFloat(sb.append("rtr:"), mCornerRadii[1]).append(';');
+            appendFloat(sb.append("rbr:"), mCornerRadii[2]).append(';');
+            appendFloat(sb.append("rbl:"), mCornerRadii[3]).append(';');
+        } else if (mRadius > 0) {
+            appendFloat(sb.append("r:"), mRadius).append(';');
+        }
+        if (sb.length() > 0) {
+            sb.setLength(sb.length() - 1);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 写入二进制格式, 可由 {@link #readFrom(DataInput)} 还原
+     */
+    public void writeTo(@NonNull DataOutput out) throws IOException {
+        int flags = 0;
+        if (mHasBackground) {
+            flags |= FLAG_BACKGROUND;
+        }
+        if (mGradientColors != null) {
+            flags |= FLAG_GRADIENT;
+        }
+        if (mBorderWidth > 0) {
+            flags |= FLAG_BORDER;
+        }
+        if (mCornerRadii != null) {
+            flags |= FLAG_CORNERS;
+        }
+        if (mRadiusAdjustBounds) {
+            flags |= FLAG_ADJUST_BOUNDS;
+        }
+        out.writeByte(BINARY_VERSION);
+        out.writeByte(flags);
+        if (mHasBackground) {
+            out.writeInt(mBackgroundColor);
+        }
+        if (mGradientColors != null) {
+            out.writeByte(mGradientOrientation);
+            out.writeByte(mGradientColors.length);
+            for (int color : mGradientColors) {
+                out.writeInt(color);
+            }
+        }
+        if (mBorderWidth > 0) {
+            out.writeInt(mBorderColor);
+            out.writeFloat(mBorderWidth);
+        }
+        if (mCornerRadii != null) {
+            for (float radius : mCornerRadii) {
+                out.writeFloat(radius);
+            }
+        } else {
+            out.writeFloat(mRadius);
+        }
+    }
+
+    /**
+     * 读取 {@link #writeTo(DataOutput)} 写入的二进制格式, 返回共享实例
+     */
+    @NonNull
+    public static JrvStyleSpec readFrom(@NonNull DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported JrvStyleSpec version " + version);
+        }
+        int flags = in.readUnsignedByte();
+        Builder builder = new Builder();
+        if ((flags & FLAG_BACKGROUND) != 0) {
+            builder.backgroundColor(in.readInt());
+        }
+        if ((flags & FLAG_GRADIENT) != 0) {
+            builder.gradientOrientation(in.readUnsignedByte());
+            int[] colors = new int[in.readUnsignedByte()];
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = in.readInt();
+            }
+            builder.gradient(colors);
+        }
+        if ((flags & FLAG_BORDER) != 0) {
+            builder.borderColor = in.readInt();
+            builder.borderWidth = in.readFloat();
+        }
+        if ((flags & FLAG_CORNERS) != 0) {
+            builder.radii(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+        } else {
+            builder.radius(in.readFloat());
+        }
+        builder.radiusAdjustBounds((flags & FLAG_ADJUST_BOUNDS) != 0);
+        return builder.build().intern();
+    }
+
+    @NonNull
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try {
+            writeTo(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            // ByteArrayOutputStream 不会抛出 IOException
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @NonNull
+    public static JrvStyleSpec fromBytes(@NonNull byte[] bytes) throws IOException {
+        return readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * 估算的对象大小, 用于 {@link JrvMemory}
+     */
+    long estimateBytes() {
+        long bytes = 56;
+        if (mGradientColors != null) {
+            bytes += 16 + mGradientColors.length * 4L;
+        }
+        if (mCornerRadii != null) {
+            bytes += 16 + mCornerRadii.length * 4L;
+        }
+        return bytes;
+    }
+
+    private Object readResolve() {
+        return intern();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JrvStyleSpec)) {
+            return false;
+        }
+        JrvStyleSpec that = (JrvStyleSpec) o;
+        return hashCode() == that.hashCode()
+                && mHasBackground == that.mHasBackground
+                && mBackgroundColor == that.mBackgroundColor
+                && mGradientOrientation == that.mGradientOrientation
+                && mBorderColor == that.mBorderColor
+                && Float.compare(mBorderWidth, that.mBorderWidth) == 0
+                && Float.compare(mRadius, that.mRadius) == 0
+                && mRadiusAdjustBounds == that.mRadiusAdjustBounds
+                && Arrays.equals(mGradientColors, that.mGradientColors)
+                && Arrays.equals(mCornerRadii, that.mCornerRadii);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mHash;
+        if (result == 0) {
+            result = mHasBackground ? 1 : 0;
+            result = 31 * result + mBackgroundColor;
+            result = 31 * result + Arrays.hashCode(mGradientColors);
+            result = 31 * result + mGradientOrientation;
+            result = 31 * result + mBorderColor;
+            result = 31 * result + Float.floatToIntBits(mBorderWidth);
+            result = 31 * result + Float.floatToIntBits(mRadius);
+            result = 31 * result + Arrays.hashCode(mCornerRadii);
+            result = 31 * result + (mRadiusAdjustBounds ? 1 : 0);
+            mHash = result;
+        }
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "JrvStyleSpec{" + encode() + "}";
+    }
+
+    private static int parseColor(CharSequence text, int start, int end) {
+        if (start >= end || text.charAt(start) != '#') {
+            throw new IllegalArgumentException("Color must start with '#' at " + start + " in " + text);
+        }
+        int digits = end - start - 1;
+        int value = 0;
+        for (int i = start + 1; i < end; i++) {
+            value = (value << 4) | hexDigit(text, i);
+        }
+        switch (digits) {
+            case 3:
+                // #RGB
+                return 0xFF000000 | expandShortHex(value, 3);
+            case 4:
+                // #ARGB
+                return expandShortHex(value, 4);
+            case 6:
+                return 0xFF000000 | value;
+            case 8:
+                return value;
+            default:
+                throw new IllegalArgumentException("Unknown color at " + start + " in " + text);
+        }
+    }
+
+    private static int expandShortHex(int value, int count) {
+        int result = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            int nibble = (value >> (i * 4)) & 0xF;
+            result = (result << 8) | (nibble << 4) | nibble;
+        }
+        return result;
+    }
+
+    private static int[] parseColors(CharSequence text, int start, int end) {
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ',') {
+                count++;
+            }
+        }
+        int[] colors = new int[count];
+        int index = 0;
+        int colorStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || text.charAt(i) == ',') {
+                colors[index++] = parseColor(text, colorStart, i);
+                colorStart = i + 1;
+            }
+        }
+        return colors;
+    }
+
+    private static int hexDigit(CharSequence text, int index) {
+        char c = text.charAt(index);
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        throw new IllegalArgumentException("Bad hex digit at " + index + " in " + text);
+    }
+
+    private static float parseFloat(CharSequence text, int start, int end) {
+        if (start >= end) {
+            throw new IllegalArgumentException("Missing number at " + start + " in " + text);
+        }
+        boolean negative = text.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        long integer = 0;
+        long fraction = 0;
+        long divisor = 1;
+        boolean inFraction = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else if (c >= '0' && c <= '9') {
+                if (inFraction) {
+                    if (divisor < 1000000) {
+                        fraction = fraction * 10 + (c - '0');
+                        divisor *= 10;
+                    }
+                } else {
+                    integer = integer * 10 + (c - '0');
+                }
+            } else {
+                throw new IllegalArgumentException("Bad number at " + i + " in " + text);
+            }
+        }
+        float value = integer + (float) fraction / divisor;
+        return negative ? -value : value;
+    }
+
+    private static StringBuilder appendColor(StringBuilder sb, int color) {
+        sb.append('#');
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            sb.append(Character.forDigit((color >>> shift) & 0xF, 16));
+        }
+        return sb;
+    }
+
+    private static StringBuilder appendFloat(StringBuilder sb, float value) {
+        if (value == (int) value) {
+            return sb.append((int) value);
+        }
+        return sb.append(value);
+    }
+
+    public static final class Builder {
+        private boolean hasBackground;
+        private int backgroundColor;
+        private int[] gradientColors;
+        private int gradientOrientation = ORIENTATION_TOP_BOTTOM;
+        private int borderColor;
+        private float borderWidth;
+        private float radius;
+        private float[] cornerRadii;
+        private boolean radiusAdjustBounds;
+
+        public Builder() {
+        }
+
+        public Builder(@NonNull JrvStyleSpec spec) {
+            hasBackground = spec.mHasBackground;
+            backgroundColor = spec.mBackgroundColor;
+            gradientColors = spec.mGradientColors == null ? null : spec.mGradientColors.clone();
+            gradientOrientation = spec.mGradientOrientation;
+            borderColor = spec.mBorderColor;
+            borderWidth = spec.mBorderWidth;
+            radius = spec.mRadius;
+            cornerRadii = spec.mCornerRadii == null ? null : spec.mCornerRadii.clone();
+            radiusAdjustBounds = spec.mRadiusAdjustBounds;
+        }
+
+        public Builder backgroundColor(@ColorInt int color) {
+            hasBackground = true;
+            backgroundColor = color;
+            return this;
+        }
+
+        /**
+         * 渐变色, 优先于背景色
+         */
+        public Builder gradient(@Nullable int... colors) {
+            gradientColors = colors == null || colors.length == 0 ? null : colors;
+            return this;
+        }
+
+        /**
+         * @param orientation {@link #ORIENTATION_TOP_BOTTOM} 等
+         */
+        public Builder gradientOrientation(int orientation) {
+            if (orientation < ORIENTATION_TOP_BOTTOM || orientation > ORIENTATION_TL_BR) {
+                throw new IllegalArgumentException("Unknown gradient orientation " + orientation);
+            }
+            gradientOrientation = orientation;
+            return this;
+        }
+
+        /**
+         * @param widthDp 描边宽度, 单位是dp
+         */
+        public Builder border(float widthDp, @ColorInt int color) {
+            borderWidth = widthDp;
+            borderColor = color;
+            return this;
+        }
+
+        /**
+         * @param radiusDp 统一圆角, 单位是dp
+         */
+        public Builder radius(float radiusDp) {
+            radius = radiusDp;
+            cornerRadii = null;
+            return this;
+        }
+
+        /**
+         * 分别设置四个圆角, 单位是dp
+         */
+        public Builder radii(float topLeft, float topRight, float bottomRight, float bottomLeft) {
+            cornerRadii = new float[]{topLeft, topRight, bottomRight, bottomLeft};
+            return this;
+        }
+
+        public Builder radiusAdjustBounds(boolean adjustBounds) {
+            radiusAdjustBounds = adjustBounds;
+            return this;
+        }
+
+        private float[] corners() {
+            if (cornerRadii == null || cornerRadii.length != 4) {
+                cornerRadii = new float[]{radius, radius, radius, radius};
+            }
+            return cornerRadii;
+        }
+
+        @NonNull
+        public JrvStyleSpec build() {
+            return new JrvStyleSpec(this);
+        }
+    }
+}
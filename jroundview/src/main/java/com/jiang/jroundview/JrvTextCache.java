@@ -0,0 +1,181 @@
+package com.jiang.jroundview;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.text.PrecomputedTextCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JrvTextView#setJrvTextAsync(CharSequence)} 使用的文字排版缓存与后台线程。
+ * <p>
+ * <ul>
+ * <li>每个 JrvTextView 一个实例, 以文字为 key 缓存自己显示过的 {@link PrecomputedTextCompat}, 列表中复用的 View
+ * 再次显示相同的文字时不再测量; 排版结果设置给 TextView 后会挂上 TextView 的监听, 不能在多个 View 之间共享。</li>
+ * <li>只缓存 String, 查找时不分配内存; 排版参数变化后旧的结果不再命中。</li>
+ * <li>后台最多 2 个线程, 队列最多 {@link #MAX_QUEUE} 个任务, 同一个 View 重新设置文字时取消还没开始的任务;
+ * 队列满时返回 null, 由 View 直接设置文字, 不在主线程额外测量。</li>
+ * </ul>
+ */
+final class JrvTextCache {
+
+    private static final int MAX_SIZE = 16;
+    private static final int MAX_QUEUE = 64;
+
+    /**
+     * 所有存活的实例, 只用于 {@link JrvMemory} 统计与释放
+     */
+    private static final Set<JrvTextCache> sInstances =
+            Collections.newSetFromMap(new WeakHashMap<JrvTextCache, Boolean>());
+
+    private static volatile ThreadPoolExecutor sExecutor;
+
+    static {
+        JrvMemory.register(new JrvMemory.Cache() {
+            @NonNull
+            @Override
+            public String getName() {
+                return "JrvTextCache";
+            }
+
+            @NonNull
+            @Override
+            public JrvMemory.Category getCategory() {
+                return JrvMemory.Category.TEXT_LAYOUT;
+            }
+
+            @Override
+            public int getEntryCount() {
+                int count = 0;
+                for (JrvTextCache cache : instances()) {
+                    count += cache.mCache.size();
+                }
+                return count;
+            }
+
+            @Override
+            public long getEstimatedBytes() {
+                long bytes = 0;
+                for (JrvTextCache cache : instances()) {
+                    for (Map.Entry<String, PrecomputedTextCompat> entry : cache.mCache.snapshot().entrySet()) {
+                        // 每个字符的宽度(float)与文字本身(char), 以及段落信息
+                        bytes += entry.getKey().length() * 6L + 256;
+                    }
+                }
+                return bytes;
+            }
+
+            @Override
+            public void trim(float keepFraction) {
+                for (JrvTextCache cache : instances()) {
+                    cache.mCache.trimToSize((int) (MAX_SIZE * keepFraction));
+                }
+            }
+        });
+    }
+
+    private final LruCache<String, PrecomputedTextCompat> mCache = new LruCache<>(MAX_SIZE);
+    /**
+     * 上一次提交的任务, 只在主线程访问
+     */
+    private FutureTask<PrecomputedTextCompat> mPending;
+
+    JrvTextCache() {
+        synchronized (sInstances) {
+            sInstances.add(this);
+        }
+    }
+
+    private static List<JrvTextCache> instances() {
+        synchronized (sInstances) {
+            return new ArrayList<>(sInstances);
+        }
+    }
+
+    /**
+     * @return 文字不是 String、没有缓存或排版参数已变化时返回 null
+     */
+    @Nullable
+    PrecomputedTextCompat get(@NonNull CharSequence text, @NonNull PrecomputedTextCompat.Params params) {
+        if (!(text instanceof String)) {
+            return null;
+        }
+        PrecomputedTextCompat cached = mCache.get((String) text);
+        return cached != null && cached.getParams().equals(params) ? cached : null;
+    }
+
+    /**
+     * 在后台线程排版, 完成后放入缓存; 同时取消上一次还没开始的任务, 调用后 View 不能再使用上一次返回的 Future
+     *
+     * @return 队列已满时返回 null
+     */
+    @Nullable
+    Future<PrecomputedTextCompat> submit(@NonNull final CharSequence text,
+                                         @NonNull final PrecomputedTextCompat.Params params) {
+        cancelPending();
+        FutureTask<PrecomputedTextCompat> task = new FutureTask<>(new Callable<PrecomputedTextCompat>() {
+            @Override
+            public PrecomputedTextCompat call() {
+                PrecomputedTextCompat result = PrecomputedTextCompat.create(text, params);
+                if (text instanceof String) {
+                    mCache.put((String) text, result);
+                }
+                return result;
+            }
+        });
+        try {
+            executor().execute(task);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        mPending = task;
+        return task;
+    }
+
+    /**
+     * 取消上一次还没开始的任务, 释放队列; 已经开始的任务继续执行, 结果仍然放入缓存
+     */
+    void cancelPending() {
+        FutureTask<PrecomputedTextCompat> pending = mPending;
+        mPending = null;
+        if (pending != null && !pending.isDone() && executor().remove(pending)) {
+            pending.cancel(false);
+        }
+    }
+
+    private static ThreadPoolExecutor executor() {
+        if (sExecutor == null) {
+            synchronized (JrvTextCache.class) {
+                if (sExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(MAX_QUEUE), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            Thread thread = new Thread(runnable, "JrvTextCache");
+                            thread.setPriority(Thread.NORM_PRIORITY - 1);
+                            return thread;
+                        }
+                    });
+                    executor.allowCoreThreadTimeOut(true);
+                    sExecutor = executor;
+                }
+            }
+        }
+        return sExecutor;
+    }
+}
@@ -2,13 +2,25 @@ package com.jiang.jroundview;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.graphics.drawable.Drawable;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
 import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
 
 import android.graphics.drawable.GradientDrawable;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
+
+import java.util.concurrent.Future;
 
 /**
  * 使按钮能方便地指定圆角、边框颜色、边框粗细、背景色
@@ -54,6 +66,24 @@ import android.util.AttributeSet;
  */
 public class JrvTextView extends AppCompatTextView implements JrvInterface<JrvTextView> {
 
+    /**
+     * 角标, 没有设置时为 null
+     */
+    private JrvBadge mBadge;
+    /**
+     * 着色图标, 相同的图标与着色在进程内共享, 见 {@link JrvIconCache}
+     */
+    @DrawableRes
+    private int mIconStartRes;
+    @DrawableRes
+    private int mIconEndRes;
+    private ColorStateList mIconTint;
+    private int mIconSize;
+    /**
+     * 后台排版的结果, 第一次调用 {@link #setJrvTextAsync(CharSequence)} 时创建
+     */
+    private JrvTextCache mTextCache;
+
     public JrvTextView(Context context) {
         this(context, null);
     }
@@ -68,8 +98,20 @@ public class JrvTextView extends AppCompatTextView implements JrvInterface<JrvTe
     }
 
     private void init(Context context, AttributeSet attrs, int defStyleAttr) {
-        JrvDrawable bg = JrvDrawable.fromAttributeSet(context, attrs, defStyleAttr);
-        JrvHelper.setBackgroundKeepingPadding(this, bg);
+        TypedArray typedArray = JrvHelper.initBackground(this, context, attrs, defStyleAttr);
+        if (typedArray == null) {
+            return;
+        }
+        mBadge = JrvBadge.fromTypedArray(this, typedArray);
+        //图标
+        mIconStartRes = typedArray.getResourceId(R.styleable.JrvTextView_jrv_iconStart, 0);
+        mIconEndRes = typedArray.getResourceId(R.styleable.JrvTextView_jrv_iconEnd, 0);
+        mIconTint = typedArray.getColorStateList(R.styleable.JrvTextView_jrv_iconTint);
+        mIconSize = typedArray.getDimensionPixelSize(R.styleable.JrvTextView_jrv_iconSize, 0);
+        typedArray.recycle();
+        if (mIconStartRes != 0 || mIconEndRes != 0) {
+            updateIcons();
+        }
     }
 
     /**
@@ -79,10 +121,10 @@ public class JrvTextView extends AppCompatTextView implements JrvInterface<JrvTe
      */
     @Override
     public JrvTextView setJrvBackgroundColor(@ColorInt int color) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
             ColorStateList colorStateList = ColorStateList.valueOf(color);
-            ((JrvDrawable) background).setBgData(colorStateList);
+            background.setBgData(colorStateList);
         }
         return this;
     }
@@ -96,10 +138,10 @@ public class JrvTextView extends AppCompatTextView implements JrvInterface<JrvTe
      */
     @Override
     public JrvTextView setJrvBorderWidthColor(int width, @ColorInt int color) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
             ColorStateList colorStateList = ColorStateList.valueOf(color);
-            ((JrvDrawable) background).setStrokeData(width, colorStateList);
+            background.setStrokeData(width, colorStateList);
         }
         return this;
     }
@@ -111,9 +153,9 @@ public class JrvTextView extends AppCompatTextView implements JrvInterface<JrvTe
      */
     @Override
     public JrvTextView setJrvIsRadiusAdjustBounds(boolean isRadiusAdjustBounds) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setIsRadiusAdjustBounds(isRadiusAdjustBounds);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setIsRadiusAdjustBounds(isRadiusAdjustBounds);
         }
         return this;
     }
@@ -125,9 +167,9 @@ public class JrvTextView extends AppCompatTextView implements JrvInterface<JrvTe
      */
     @Override
     public JrvTextView setJrvRadius(float radius) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setRadius(radius);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadius(radius);
         }
         return this;
     }
@@ -143,9 +185,35 @@ public class JrvTextView extends AppCompatTextView implements JrvInterface<JrvTe
      */
     @Override
     public JrvTextView setJrvRadius(float topLeftRadius, float topRightRadius, float bottomRightRadius, float bottomLeftRadius) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setRadius(topLeftRadius, topRightRadius, bottomLeftRadius, bottomRightRadius);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadius(topLeftRadius, topRightRadius, bottomLeftRadius, bottomRightRadius);
+        }
+        return this;
+    }
+
+    /**
+     * 设置圆角大小为短边的百分比
+     *
+     * @param percent 相对短边的比例, 如 0.5f 即为半圆
+     */
+    @Override
+    public JrvTextView setJrvRadiusPercent(float percent) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadiusPercent(percent);
+        }
+        return this;
+    }
+
+    /**
+     * 分别设置view 的四个圆角大小为短边的百分比
+     */
+    @Override
+    public JrvTextView setJrvRadiusPercent(float topLeftPercent, float topRightPercent, float bottomRightPercent, float bottomLeftPercent) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setRadiusPercent(topLeftPercent, topRightPercent, bottomRightPercent, bottomLeftPercent);
         }
         return this;
     }
@@ -156,9 +224,9 @@ public class JrvTextView extends AppCompatTextView implements JrvInterface<JrvTe
     @Override
     public JrvTextView setGradient(@ColorInt int[] colors) {
         if (colors != null && colors.length > 0) {
-            Drawable background = getBackground();
-            if (background instanceof JrvDrawable) {
-                ((JrvDrawable) background).setGradient(colors);
+            JrvDrawable background = JrvHelper.getJrvBackground(this);
+            if (background != null) {
+                background.setGradient(colors);
             }
         }
         return this;
@@ -166,10 +234,199 @@ public class JrvTextView extends AppCompatTextView implements JrvInterface<JrvTe
 
     @Override
     public JrvTextView setGradientOrientation(GradientDrawable.Orientation orientation) {
-        Drawable background = getBackground();
-        if (background instanceof JrvDrawable) {
-            ((JrvDrawable) background).setOrientation(orientation);
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setOrientation(orientation);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvTextView addJrvLayer(@StyleRes int layerStyle) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.addLayer(getContext(), layerStyle);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvTextView clearJrvLayers() {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.clearLayers();
+        }
+        return this;
+    }
+
+    @Override
+    public JrvTextView setJrvStyleSpec(@NonNull JrvStyleSpec spec) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.applySpec(spec, getResources().getDisplayMetrics().density);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvTextView setJrvShapeHitTest(boolean shapeHitTest) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setShapeHitTest(shapeHitTest);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvTextView setJrvRippleColor(@Nullable ColorStateList color) {
+        JrvHelper.setRippleColor(this, color);
+        return this;
+    }
+
+    @Override
+    public JrvTextView setJrvBorderProgress(float progress) {
+        JrvDrawable background = JrvHelper.getJrvBackground(this);
+        if (background != null) {
+            background.setBorderProgress(progress);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvTextView setJrvBorderProgressStyle(@Nullable ColorStateList color, int width, int startGravity) {
+        JrvHelper.setBorderProgressStyle(this, color, width, startGravity);
+        return this;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (JrvHelper.isTouchOutsideShape(this, event)) {
+            return false;
+        }
+        return super.dispatchTouchEvent(event);
+    }
+
+    @Override
+    public JrvTextView setJrvBadgeText(@Nullable CharSequence text) {
+        if (text != null || mBadge != null) {
+            mBadge = JrvHelper.obtainBadge(this, mBadge);
+            mBadge.setText(text);
         }
         return this;
     }
+
+    @Override
+    public JrvTextView setJrvBadgeCount(int count) {
+        if (count > 0 || mBadge != null) {
+            mBadge = JrvHelper.obtainBadge(this, mBadge);
+            mBadge.setCount(count);
+        }
+        return this;
+    }
+
+    @Override
+    public JrvTextView setJrvBadgeColor(@ColorInt int color) {
+        mBadge = JrvHelper.obtainBadge(this, mBadge);
+        mBadge.setColor(color);
+        return this;
+    }
+
+    @Override
+    public JrvTextView setJrvBadgeGravity(int gravity, int offsetX, int offsetY) {
+        mBadge = JrvHelper.obtainBadge(this, mBadge);
+        mBadge.setGravity(gravity, offsetX, offsetY);
+        return this;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        boolean profiling = JrvProfiler.isEnabled();
+        long start = profiling ? System.nanoTime() : 0;
+        super.draw(canvas);
+        if (mBadge != null) {
+            mBadge.draw(canvas);
+        }
+        if (profiling) {
+            JrvProfiler.recordViewDraw(this, start);
+        }
+    }
+
+    /**
+     * 设置文字前后的图标, 图标按 {@link #setJrvIconTint(ColorStateList)} 着色
+     *
+     * @param startRes 文字前的图标, 0 表示不显示
+     * @param endRes   文字后的图标, 0 表示不显示
+     */
+    public JrvTextView setJrvIcons(@DrawableRes int startRes, @DrawableRes int endRes) {
+        if (mIconStartRes != startRes || mIconEndRes != endRes) {
+            mIconStartRes = startRes;
+            mIconEndRes = endRes;
+            updateIcons();
+        }
+        return this;
+    }
+
+    /**
+     * 设置图标的着色, 不同状态的颜色由图标在状态变化时自行切换
+     */
+    public JrvTextView setJrvIconTint(@Nullable ColorStateList tint) {
+        if (mIconTint != tint) {
+            mIconTint = tint;
+            updateIcons();
+        }
+        return this;
+    }
+
+    /**
+     * 设置图标大小
+     *
+     * @param size 单位是px, 小于等于 0 时使用图片自身大小
+     */
+    public JrvTextView setJrvIconSize(int size) {
+        if (mIconSize != size) {
+            mIconSize = size;
+            updateIcons();
+        }
+        return this;
+    }
+
+    /**
+     * 在后台线程排版文字后再显示, 适用于大量标签等文字较多的场景; 列表中复用的 View 再次显示相同的文字时直接使用
+     * 上一次的排版结果, 见 {@link JrvTextCache}。排版结果在 onMeasure 时使用, 不会额外测量一次。
+     * 设置后到显示前不要再修改字号、字体等排版参数。
+     */
+    public JrvTextView setJrvTextAsync(@Nullable CharSequence text) {
+        if (mTextCache == null) {
+            mTextCache = new JrvTextCache();
+        }
+        PrecomputedTextCompat.Params params = getTextMetricsParamsCompat();
+        PrecomputedTextCompat cached = TextUtils.isEmpty(text) ? null : mTextCache.get(text, params);
+        Future<PrecomputedTextCompat> future = null;
+        if (cached == null && !TextUtils.isEmpty(text)) {
+            future = mTextCache.submit(text, params);
+        } else {
+            mTextCache.cancelPending();
+        }
+        // 替换还没使用的排版任务, 避免其在 onMeasure 时覆盖新的文字
+        setTextFuture(future);
+        if (cached != null) {
+            TextViewCompat.setPrecomputedText(this, cached);
+        } else if (future == null) {
+            setText(text);
+        }
+        return this;
+    }
+
+    private void updateIcons() {
+        Drawable start = JrvIconCache.obtain(getContext(), mIconStartRes, mIconTint, mIconSize);
+        Drawable end = JrvIconCache.obtain(getContext(), mIconEndRes, mIconTint, mIconSize);
+        Drawable[] drawables = TextViewCompat.getCompoundDrawablesRelative(this);
+        TextViewCompat.setCompoundDrawablesRelative(this, start, drawables[1], end, drawables[3]);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        JrvOverdraw.onLayout(this, changed);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,481 @@
+package com.jiang.jroundview;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录 App 实际使用的样式与大小, 下次启动时在空闲时预先创建, 减少冷启动后第一次滑动时创建背景的耗时。
+ * <p>
+ * <ul>
+ * <li>记录三类条目: 解析过的 {@link JrvStyleSpec} 文本, {@link JrvStateCache} 中能用 spec 表示的样式,
+ * 以及参数化形状按大小生成的轮廓({@link JrvShape})。</li>
+ * <li>App 进入后台时写入 App 私有目录下的文件, 最多 {@link #setMaxEntries(int)} 条, 文件不超过 {@link #MAX_FILE_BYTES}。</li>
+ * <li>下次启动时在后台线程读取并解析 spec, 轮廓与样式缓存在主线程的 IdleHandler 中每次处理少量条目;
+ * App 升级后(资源 id 可能变化)与屏幕配置不同的样式条目不使用。</li>
+ * <li>重放上次的条目时不记录, 预热的样式在本次运行中第一次被使用时才重新记录, 不再使用的样式在下一次写入时过期。</li>
+ * </ul>
+ * <pre>
+ * // Application.onCreate
+ * JrvUsageProfile.install(this);
+ * </pre>
+ */
+public final class JrvUsageProfile {
+
+    static final int MAX_FILE_BYTES = 32 * 1024;
+    private static final String FILE_NAME = "jrv_usage_profile";
+    private static final String HEADER = "# jrv usage profile v1";
+    /**
+     * 每次空闲时处理的条目数
+     */
+    private static final int PREWARM_BATCH = 8;
+
+    private static final String TYPE_SPEC = "s";
+    private static final String TYPE_STATE = "c";
+    private static final String TYPE_PATH = "p";
+
+    private static volatile boolean sEnabled = true;
+    private static volatile boolean sRecording;
+    private static volatile int sMaxEntries = 256;
+    private static volatile Context sContext;
+    private static volatile String sAppVersion;
+    /**
+     * 本次运行记录的条目, 每条为一行, 解析 spec 可能在其他线程, 修改时加锁
+     */
+    private static final LinkedHashSet<String> sEntries = new LinkedHashSet<>();
+    /**
+     * 当前线程正在重放上次的记录, 期间解析 spec 与生成轮廓不记录
+     */
+    private static final ThreadLocal<Boolean> sReplaying = new ThreadLocal<>();
+    private static boolean sDirty;
+    private static Prewarmer sPrewarmer;
+    /**
+     * 读取、写入与删除记录文件的单个线程, 保证文件操作按调用顺序执行
+     */
+    private static volatile ThreadPoolExecutor sIoExecutor;
+
+    private JrvUsageProfile() {
+    }
+
+    /**
+     * 开始记录并在空闲时预热上次运行记录的样式, 在 Application.onCreate 中调用
+     */
+    public static void install(@NonNull Context context) {
+        if (!sEnabled || sContext != null) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        sContext = appContext;
+        sAppVersion = appVersionOf(appContext);
+        sRecording = true;
+        appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                    save();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+            }
+        });
+        final File file = fileOf(appContext);
+        io(new Runnable() {
+            @Override
+            public void run() {
+                final List<String[]> lines = read(file);
+                if (lines.isEmpty()) {
+                    return;
+                }
+                // spec 的解析缓存是线程安全的, 在后台线程完成
+                replaySpecs(lines);
+                new Handler(Looper.getMainLooper()).post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (sEnabled) {
+                            sPrewarmer = new Prewarmer(appContext.getResources(), lines);
+                            Looper.myQueue().addIdleHandler(sPrewarmer);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 开启或关闭记录与预热, 默认开启; 关闭时停止未完成的预热并删除记录文件
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+        if (!enabled) {
+            sRecording = false;
+            if (sPrewarmer != null) {
+                sPrewarmer.cancel();
+                sPrewarmer = null;
+            }
+            synchronized (sEntries) {
+                sEntries.clear();
+                sDirty = false;
+            }
+            final Context context = sContext;
+            if (context != null) {
+                // 与写入在同一个线程按顺序执行, 已提交的写入不会在删除后重新生成文件
+                io(new Runnable() {
+                    @Override
+                    public void run() {
+                        //noinspection ResultOfMethodCallIgnored
+                        fileOf(context).delete();
+                    }
+                });
+            }
+        } else if (sContext != null) {
+            sRecording = true;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * 设置最多记录的条目数, 默认 256, 超过后不再记录新的样式
+     */
+    public static void setMaxEntries(int maxEntries) {
+        sMaxEntries = Math.max(0, maxEntries);
+    }
+
+    /**
+     * 在后台线程写入记录文件, App 进入后台时自动调用
+     */
+    public static void save() {
+        final Context context = sContext;
+        if (context == null || !sEnabled) {
+            return;
+        }
+        final List<String> entries;
+        synchronized (sEntries) {
+            if (!sDirty) {
+                return;
+            }
+            sDirty = false;
+            entries = new ArrayList<>(sEntries);
+        }
+        io(new Runnable() {
+            @Override
+            public void run() {
+                if (sEnabled) {
+                    write(fileOf(context), entries);
+                }
+            }
+        });
+    }
+
+    /**
+     * 由 {@link JrvStyleSpec#valueOf(String)} 在解析缓存未命中或第一次命中重放的文本时调用, 其他命中时不产生任何开销
+     */
+    static void recordSpec(@NonNull String text) {
+        if (sRecording && text.indexOf('\t') < 0 && !isReplaying()) {
+            add(TYPE_SPEC + '\t' + text);
+        }
+    }
+
+    /**
+     * 预热的 {@link JrvStateCache} 条目第一次命中时调用, 重新记录原来的行
+     */
+    static void recordLine(@NonNull String line) {
+        if (sRecording) {
+            add(line);
+        }
+    }
+
+    /**
+     * @return 当前线程是否正在重放上次的记录, 重放时创建的缓存在第一次使用时才记录
+     */
+    static boolean isReplaying() {
+        return sReplaying.get() != null;
+    }
+
+    static void recordStateCacheEntry(@NonNull String key, @NonNull JrvDrawable drawable, boolean hasExtras,
+                                      int changingConfigs, @NonNull Resources resources) {
+        if (!sRecording || key.indexOf('\t') >= 0) {
+            return;
+        }
+        float density = resources.getDisplayMetrics().density;
+        JrvStyleSpec spec = drawable.toSpec(density);
+        if (spec != null) {
+            add(TYPE_STATE + '\t' + fingerprintOf(resources) + '\t' + changingConfigs + '\t' + (hasExtras ? 1 : 0)
+                    + '\t' + spec.encode() + '\t' + key);
+        }
+    }
+
+    static void recordPath(@Nullable JrvShape shape, int width, int height, float[] radii, float inset) {
+        if (sRecording && shape != null && !isReplaying()) {
+            StringBuilder line = new StringBuilder(TYPE_PATH).append('\t').append(width).append('\t').append(height)
+                    .append('\t');
+            for (int i = 0; i < 8; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(radii[i]);
+            }
+            add(line.append('\t').append(inset).append('\t').append(shape.encode()).toString());
+        }
+    }
+
+    private static void add(String line) {
+        if (line.indexOf('\n') >= 0) {
+            return;
+        }
+        synchronized (sEntries) {
+            if (sEntries.size() < sMaxEntries && sEntries.add(line)) {
+                sDirty = true;
+            }
+        }
+    }
+
+    private static void io(Runnable task) {
+        if (sIoExecutor == null) {
+            synchronized (JrvUsageProfile.class) {
+                if (sIoExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            return new Thread(runnable, "JrvUsageProfile");
+                        }
+                    });
+                    executor.allowCoreThreadTimeOut(true);
+                    sIoExecutor = executor;
+                }
+            }
+        }
+        sIoExecutor.execute(task);
+    }
+
+    private static File fileOf(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * App 升级后资源 id 可能变化, 以安装时间区分版本
+     */
+    private static String appVersionOf(Context context) {
+        try {
+            return String.valueOf(context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime);
+        } catch (PackageManager.NameNotFoundException e) {
+            return "0";
+        }
+    }
+
+    /**
+     * 影响属性取值的屏幕配置, 不同时样式缓存条目不使用
+     */
+    @SuppressWarnings("deprecation")
+    private static String fingerprintOf(Resources resources) {
+        Configuration config = resources.getConfiguration();
+        Locale locale = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? config.getLocales().get(0) : config.locale;
+        String text = config.densityDpi + "/" + config.fontScale + "/" + config.uiMode + "/" + config.orientation
+                + "/" + config.screenWidthDp + "/" + config.screenHeightDp + "/" + config.smallestScreenWidthDp
+                + "/" + config.screenLayout + "/" + locale;
+        return Integer.toHexString(text.hashCode());
+    }
+
+    /**
+     * 解析记录中的 spec, 放入解析缓存但不记录
+     */
+    static void replaySpecs(@NonNull List<String[]> lines) {
+        sReplaying.set(Boolean.TRUE);
+        try {
+            for (String[] line : lines) {
+                if (TYPE_SPEC.equals(line[0]) || TYPE_STATE.equals(line[0])) {
+                    parseSpec(line[line.length - (TYPE_SPEC.equals(line[0]) ? 1 : 2)]);
+                }
+            }
+        } finally {
+            sReplaying.remove();
+        }
+    }
+
+    /**
+     * 开始或停止记录, 不读写文件, 用于测试
+     */
+    static void setRecording(boolean recording) {
+        sRecording = recording;
+    }
+
+    /**
+     * @return 本次运行记录的条目, 用于测试
+     */
+    @NonNull
+    static List<String> getEntries() {
+        synchronized (sEntries) {
+            return new ArrayList<>(sEntries);
+        }
+    }
+
+    private static void parseSpec(String text) {
+        try {
+            JrvStyleSpec.valueOf(text);
+        } catch (IllegalArgumentException ignored) {
+            // 记录文件损坏, 忽略该条目
+        }
+    }
+
+    private static List<String[]> read(File file) {
+        List<String[]> lines = new ArrayList<>();
+        if (!file.isFile() || file.length() > MAX_FILE_BYTES) {
+            return lines;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            if (!HEADER.equals(reader.readLine()) || !("app=" + sAppVersion).equals(reader.readLine())) {
+                return lines;
+            }
+            String line;
+            while ((line = reader.readLine()) != null && lines.size() < sMaxEntries) {
+                String[] fields = line.split("\t");
+                if (fields.length >= 2) {
+                    lines.add(fields);
+                }
+            }
+        } catch (IOException ignored) {
+            // 读取失败时不预热
+        } finally {
+            closeQuietly(reader);
+        }
+        return lines;
+    }
+
+    private static void write(File file, List<String> entries) {
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+            StringBuilder content = new StringBuilder();
+            content.append(HEADER).append('\n').append("app=").append(sAppVersion).append('\n');
+            for (String entry : entries) {
+                if (content.length() + entry.length() + 1 > MAX_FILE_BYTES) {
+                    break;
+                }
+                content.append(entry).append('\n');
+            }
+            writer.write(content.toString());
+            writer.close();
+            writer = null;
+            //noinspection ResultOfMethodCallIgnored
+            tmp.renameTo(file);
+        } catch (IOException ignored) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private static void closeQuietly(@Nullable java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * 在主线程空闲时分批预热, 处理完或取消后移除
+     */
+    private static final class Prewarmer implements MessageQueue.IdleHandler {
+        private final Resources mResources;
+        private final List<String[]> mLines;
+        private final String mFingerprint;
+        private final float[] mRadii = new float[8];
+        private int mIndex;
+        private boolean mCancelled;
+
+        Prewarmer(Resources resources, List<String[]> lines) {
+            mResources = resources;
+            mLines = lines;
+            mFingerprint = fingerprintOf(resources);
+        }
+
+        void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public boolean queueIdle() {
+            int end = Math.min(mIndex + PREWARM_BATCH, mLines.size());
+            sReplaying.set(Boolean.TRUE);
+            try {
+                for (; mIndex < end && !mCancelled; mIndex++) {
+                    try {
+                        prewarm(mLines.get(mIndex));
+                    } catch (IllegalArgumentException ignored) {
+                        // 记录文件损坏, 忽略该条目
+                    }
+                }
+            } finally {
+                sReplaying.remove();
+            }
+            boolean more = !mCancelled && mIndex < mLines.size();
+            if (!more && sPrewarmer == this) {
+                sPrewarmer = null;
+            }
+            return more;
+        }
+
+        private void prewarm(String[] line) {
+            if (TYPE_STATE.equals(line[0]) && line.length == 6 && mFingerprint.equals(line[1])) {
+                JrvStyleSpec spec = JrvStyleSpec.valueOf(line[4]);
+                JrvDrawable template = JrvDrawable.fromSpec(spec, mResources.getDisplayMetrics().density);
+                template.setOrigin(JrvDrawable.ORIGIN_STATE_CACHE);
+                JrvStateCache.prewarm(line[5], template, "1".equals(line[3]), mResources, Integer.parseInt(line[2]),
+                        TextUtils.join("\t", line));
+            } else if (TYPE_PATH.equals(line[0]) && line.length == 6) {
+                String[] radii = line[3].split(",");
+                if (radii.length != 8) {
+                    return;
+                }
+                for (int i = 0; i < 8; i++) {
+                    mRadii[i] = Float.parseFloat(radii[i]);
+                }
+                JrvShape.obtainPath(JrvShape.decode(line[5]), Integer.parseInt(line[1]), Integer.parseInt(line[2]),
+                        mRadii, Float.parseFloat(line[4]));
+            }
+        }
+    }
+}
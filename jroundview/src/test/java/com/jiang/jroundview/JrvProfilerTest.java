@@ -0,0 +1,45 @@
+package com.jiang.jroundview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link JrvProfiler} 直方图的分桶与分位数测试
+ */
+public class JrvProfilerTest {
+
+    @Test
+    public void bucketOf_usesPowersOfTwoMicros() {
+        assertEquals(0, JrvProfiler.bucketOf(0));
+        assertEquals(0, JrvProfiler.bucketOf(999));
+        assertEquals(1, JrvProfiler.bucketOf(1_000));
+        assertEquals(2, JrvProfiler.bucketOf(2_000));
+        assertEquals(2, JrvProfiler.bucketOf(3_999));
+        assertEquals(3, JrvProfiler.bucketOf(4_000));
+        assertEquals(JrvProfiler.BUCKET_COUNT - 1, JrvProfiler.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentileMicros_returnsBucketUpperBound() {
+        long[] buckets = new long[JrvProfiler.BUCKET_COUNT];
+        // 50 次 [1, 2)us, 40 次 [4, 8)us, 10 次 [512, 1024)us
+        buckets[1] = 50;
+        buckets[3] = 40;
+        buckets[10] = 10;
+        JrvProfiler.Entry entry = new JrvProfiler.Entry("r:8", JrvProfiler.Operation.DRAW, 100,
+                0, 1_000_000, buckets);
+        assertEquals(2, entry.percentileMicros(0.5f));
+        assertEquals(8, entry.percentileMicros(0.9f));
+        assertEquals(1024, entry.percentileMicros(0.99f));
+    }
+
+    @Test
+    public void percentileMicros_lastBucketUsesMax() {
+        long[] buckets = new long[JrvProfiler.BUCKET_COUNT];
+        buckets[JrvProfiler.BUCKET_COUNT - 1] = 1;
+        JrvProfiler.Entry entry = new JrvProfiler.Entry("r:8", JrvProfiler.Operation.DRAW, 1,
+                100_000_000, 100_000_000, buckets);
+        assertEquals(100_000, entry.percentileMicros(0.5f));
+    }
+}
@@ -0,0 +1,96 @@
+package com.jiang.jroundview;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link JrvStyleSpec} 的编解码测试
+ */
+public class JrvStyleSpecTest {
+
+    @Test
+    public void parse_readsAllKeys() {
+        JrvStyleSpec spec = JrvStyleSpec.parse("bg:#FA3246;gc:#f00,#00FF00,#800000FF;go:6;bc:#fff;bw:1.5;rtl:4;rtr:8;rbr:0;rbl:2.25");
+        assertTrue(spec.hasBackground());
+        assertEquals(0xFFFA3246, spec.getBackgroundColor());
+        assertArrayEquals(new int[]{0xFFFF0000, 0xFF00FF00, 0x800000FF}, spec.getGradientColors());
+        assertEquals(JrvStyleSpec.ORIENTATION_LEFT_RIGHT, spec.getGradientOrientation());
+        assertEquals(0xFFFFFFFF, spec.getBorderColor());
+        assertEquals(1.5f, spec.getBorderWidth(), 0f);
+        assertArrayEquals(new float[]{4, 8, 0, 2.25f}, spec.getCornerRadii(), 0f);
+        assertFalse(spec.isRadiusAdjustBounds());
+    }
+
+    @Test
+    public void parse_ignoresUnknownKeys() {
+        JrvStyleSpec spec = JrvStyleSpec.parse("shadow:4;r:12;ra:1");
+        assertEquals(12f, spec.getRadius(), 0f);
+        assertTrue(spec.isRadiusAdjustBounds());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsBadColor() {
+        JrvStyleSpec.parse("bg:#12345");
+    }
+
+    @Test
+    public void encode_roundTrips() {
+        JrvStyleSpec spec = new JrvStyleSpec.Builder()
+                .gradient(0xFF112233, 0x80445566)
+                .gradientOrientation(JrvStyleSpec.ORIENTATION_BL_TR)
+                .border(0.5f, 0xFF000000)
+                .radii(1, 2, 3, 4)
+                .build();
+        assertEquals(spec, JrvStyleSpec.parse(spec.encode()));
+    }
+
+    @Test
+    public void binary_roundTrips() throws Exception {
+        JrvStyleSpec spec = JrvStyleSpec.parse("bg:#FA3246;bc:#fff;bw:1;r:20");
+        assertEquals(spec, JrvStyleSpec.fromBytes(spec.toBytes()));
+    }
+
+    @Test
+    public void intern_returnsSharedInstance() throws Exception {
+        JrvStyleSpec a = JrvStyleSpec.parse("bg:#FA3246;r:20").intern();
+        JrvStyleSpec b = JrvStyleSpec.parse("r:20;bg:#fa3246").intern();
+        assertSame(a, b);
+        assertSame(a, JrvStyleSpec.valueOf("bg:#FA3246;r:20"));
+        assertSame(a, JrvStyleSpec.fromBytes(a.toBytes()));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(a);
+        out.close();
+        Object read = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertSame(a, read);
+    }
+
+    @Test
+    public void parse_ignoresLongAndNonAsciiKeys() {
+        // 折叠后与 bg 相同的 key 不能被当作 bg
+        JrvStyleSpec spec = JrvStyleSpec.parse("\u0000\u0000\u0000bg:#FFFFFF;\u6267:#FFFFFF;r:4");
+        assertFalse(spec.hasBackground());
+        assertEquals(4f, spec.getRadius(), 0f);
+    }
+
+    @Test
+    public void builder_copiesArrays() {
+        JrvStyleSpec spec = new JrvStyleSpec.Builder()
+                .gradient(0xFF112233, 0xFF445566)
+                .radii(1, 2, 3, 4)
+                .build()
+                .intern();
+        JrvStyleSpec.Builder builder = new JrvStyleSpec.Builder(spec);
+        JrvStyleSpec copy = builder.radii(5, 6, 7, 8).gradient(0xFF000000, 0xFFFFFFFF).build();
+        assertArrayEquals(new float[]{1, 2, 3, 4}, spec.getCornerRadii(), 0f);
+        assertArrayEquals(new int[]{0xFF112233, 0xFF445566}, spec.getGradientColors());
+        assertNotEquals(spec, copy);
+    }
+}
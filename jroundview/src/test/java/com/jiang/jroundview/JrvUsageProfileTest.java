@@ -0,0 +1,52 @@
+package com.jiang.jroundview;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link JrvUsageProfile} 重放上次的记录时不重新记录
+ */
+public class JrvUsageProfileTest {
+
+    @Before
+    public void setUp() {
+        JrvUsageProfile.setRecording(true);
+    }
+
+    @After
+    public void tearDown() {
+        // 关闭时清空条目, 没有安装时不会重新开始记录
+        JrvUsageProfile.setEnabled(false);
+        JrvUsageProfile.setEnabled(true);
+    }
+
+    @Test
+    public void replay_doesNotRecordReplayedEntries() {
+        List<String[]> lines = Arrays.asList(
+                new String[]{"s", "bg:#0A0B0C;r:7"},
+                new String[]{"c", "fingerprint", "0", "0", "bg:#0C0B0A;r:9", "key"});
+        JrvUsageProfile.replaySpecs(lines);
+        assertEquals(Collections.<String>emptyList(), JrvUsageProfile.getEntries());
+    }
+
+    @Test
+    public void replay_recordsOnFirstUse() {
+        JrvUsageProfile.replaySpecs(Collections.singletonList(new String[]{"s", "bg:#1A1B1C;r:5"}));
+        JrvStyleSpec.valueOf("bg:#1A1B1C;r:5");
+        JrvStyleSpec.valueOf("bg:#1A1B1C;r:5");
+        assertEquals(Collections.singletonList("s\tbg:#1A1B1C;r:5"), JrvUsageProfile.getEntries());
+    }
+
+    @Test
+    public void recordsNewSpecs() {
+        JrvStyleSpec.valueOf("bg:#2A2B2C;r:3");
+        assertEquals(Collections.singletonList("s\tbg:#2A2B2C;r:3"), JrvUsageProfile.getEntries());
+    }
+}